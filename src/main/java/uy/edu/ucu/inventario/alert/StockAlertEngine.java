@@ -0,0 +1,214 @@
+package uy.edu.ucu.inventario.alert;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.annotation.PostConstruct;
+import uy.edu.ucu.inventario.availability.LongIntHashMap;
+import uy.edu.ucu.inventario.availability.StockAvailabilityIndex;
+import uy.edu.ucu.inventario.dto.StockAlert;
+import uy.edu.ucu.inventario.dto.StockThreshold;
+
+/**
+ * Keeps the set of breached reorder thresholds up to date. Thresholds live in memory
+ * (and in {@code stock_thresholds}); every time the {@link StockAvailabilityIndex}
+ * publishes a change for a pair, only that pair's threshold and its product-wide
+ * threshold are checked again, so serving the alerts never scans anything.
+ *
+ * A pair threshold compares the quantity in that deposit (0 without a stock row); a
+ * product threshold compares the total over all deposits.
+ */
+@Component
+public class StockAlertEngine {
+
+    private static final int NONE = 0;
+
+    private static final String LOAD = "SELECT product_id, deposit_id, min_quantity FROM stock_thresholds";
+
+    private static final String UPSERT_PAIR =
+            "INSERT INTO stock_thresholds (product_id, deposit_id, min_quantity) VALUES (?, ?, ?) " +
+            "ON CONFLICT (product_id, deposit_id) WHERE deposit_id IS NOT NULL " +
+            "DO UPDATE SET min_quantity = EXCLUDED.min_quantity";
+
+    private static final String UPSERT_PRODUCT =
+            "INSERT INTO stock_thresholds (product_id, deposit_id, min_quantity) VALUES (?, NULL, ?) " +
+            "ON CONFLICT (product_id) WHERE deposit_id IS NULL " +
+            "DO UPDATE SET min_quantity = EXCLUDED.min_quantity";
+
+    private static final String DELETE_PAIR = "DELETE FROM stock_thresholds WHERE product_id = ? AND deposit_id = ?";
+    private static final String DELETE_PRODUCT = "DELETE FROM stock_thresholds WHERE product_id = ? AND deposit_id IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StockAvailabilityIndex availabilityIndex;
+
+    // Depósito 0 en la clave marca el umbral general del producto
+    private final LongIntHashMap thresholds = new LongIntHashMap(256);
+    private final Map<Long, StockAlert> breached = new TreeMap<>();
+
+    public StockAlertEngine(JdbcTemplate jdbcTemplate, StockAvailabilityIndex availabilityIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    @PostConstruct
+    synchronized void load() {
+        thresholds.clear();
+        breached.clear();
+        jdbcTemplate.query(LOAD, rs -> {
+            long depositId = rs.getLong("deposit_id");
+            thresholds.put(key(rs.getLong("product_id"), rs.wasNull() ? 0 : depositId), rs.getInt("min_quantity"));
+        });
+        thresholds.forEach((key, minQuantity) -> evaluate(key));
+        availabilityIndex.addListener(this::quantityChanged);
+    }
+
+    /** Breached thresholds, ordered by product and deposit (product-wide first). */
+    public synchronized List<StockAlert> alerts() {
+        return new ArrayList<>(breached.values());
+    }
+
+    public synchronized List<StockThreshold> thresholds() {
+        List<StockThreshold> result = new ArrayList<>(thresholds.size());
+        thresholds.forEach((key, minQuantity) -> result.add(
+                new StockThreshold(key >>> 32, depositOf(key), minQuantity)));
+        result.sort(Comparator.comparing(StockThreshold::productId)
+                .thenComparing(StockThreshold::depositId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return result;
+    }
+
+    /**
+     * Creates or replaces a threshold and checks it right away.
+     */
+    public synchronized StockThreshold setThreshold(StockThreshold threshold) {
+        if (threshold == null || threshold.productId() == null || threshold.productId() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Threshold must be associated with a product.");
+        }
+        if (threshold.depositId() != null && threshold.depositId() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Deposit id must be positive.");
+        }
+        if (threshold.minQuantity() == null || threshold.minQuantity() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Threshold minimum quantity must be positive.");
+        }
+
+        try {
+            if (threshold.depositId() == null) {
+                jdbcTemplate.update(UPSERT_PRODUCT, threshold.productId(), threshold.minQuantity());
+            } else {
+                jdbcTemplate.update(UPSERT_PAIR, threshold.productId(), threshold.depositId(), threshold.minQuantity());
+            }
+        } catch (DataIntegrityViolationException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product or deposit not found.", ex);
+        }
+
+        long key = key(threshold.productId(), threshold.depositId() == null ? 0 : threshold.depositId());
+        thresholds.put(key, threshold.minQuantity());
+        evaluate(key);
+        return threshold;
+    }
+
+    /**
+     * @throws ResponseStatusException 404 if there is no such threshold
+     */
+    public synchronized void removeThreshold(long productId, Long depositId) {
+        int deleted = depositId == null
+                ? jdbcTemplate.update(DELETE_PRODUCT, productId)
+                : jdbcTemplate.update(DELETE_PAIR, productId, depositId);
+        if (deleted == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock threshold not found.");
+        }
+
+        long key = key(productId, depositId == null ? 0 : depositId);
+        thresholds.remove(key);
+        breached.remove(key);
+    }
+
+    /**
+     * Drops the thresholds of a product being deleted once the current transaction commits
+     * (right away without one). Its rows in {@code stock_thresholds} go by cascade.
+     */
+    public void forgetProductAfterCommit(long productId) {
+        afterCommit(() -> forget(key -> key >>> 32 == productId));
+    }
+
+    /** Like {@link #forgetProductAfterCommit}, for a deposit being deleted. */
+    public void forgetDepositAfterCommit(long depositId) {
+        afterCommit(() -> forget(key -> (key & 0xFFFF_FFFFL) == depositId));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private synchronized void forget(LongPredicate matches) {
+        List<Long> keys = new ArrayList<>();
+        thresholds.forEach((key, minQuantity) -> {
+            if (matches.test(key)) {
+                keys.add(key);
+            }
+        });
+        for (long key : keys) {
+            thresholds.remove(key);
+            breached.remove(key);
+        }
+    }
+
+    private synchronized void quantityChanged(long productId, long depositId) {
+        if (thresholds.size() == 0) {
+            return;
+        }
+        evaluate(key(productId, depositId));
+        evaluate(key(productId, 0));
+    }
+
+    // Vuelve a comparar una sola clave con la cantidad actual del índice
+    private void evaluate(long key) {
+        int minQuantity = thresholds.get(key, NONE);
+        if (minQuantity == NONE) {
+            breached.remove(key);
+            return;
+        }
+
+        long productId = key >>> 32;
+        Long depositId = depositOf(key);
+        int quantity = depositId == null
+                ? availabilityIndex.productTotal(productId)
+                : availabilityIndex.quantity(productId, depositId);
+
+        if (quantity < minQuantity) {
+            breached.put(key, new StockAlert(productId, depositId, quantity, minQuantity));
+        } else {
+            breached.remove(key);
+        }
+    }
+
+    private static long key(long productId, long depositId) {
+        return (productId << 32) | depositId;
+    }
+
+    private static Long depositOf(long key) {
+        long depositId = key & 0xFFFF_FFFFL;
+        return depositId == 0 ? null : depositId;
+    }
+}
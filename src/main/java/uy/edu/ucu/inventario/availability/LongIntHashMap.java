@@ -0,0 +1,186 @@
+package uy.edu.ucu.inventario.availability;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code long} to {@code int} with linear probing, keys and
+ * values in two flat arrays: no boxing and no per-entry objects. Removal shifts the
+ * following entries back instead of leaving tombstones, so lookups stay short.
+ *
+ * Key 0 is reserved to mark empty slots. Not thread-safe, except that {@link #get} never
+ * throws or loops forever while racing a writer, which makes it usable for optimistic reads.
+ */
+public final class LongIntHashMap {
+
+    /** Receives each entry of {@link #forEach}. */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int resizeAt;
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(Math.max(expectedSize, 16)));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the value for the key, or {@code missing} if it is not present
+     */
+    public int get(long key, int missing) {
+        if (key == EMPTY) {
+            return missing;
+        }
+        long[] k = keys;
+        int[] v = values;
+        int mask = k.length - 1;
+        int slot = mix(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = k[slot];
+            if (current == key) {
+                return slot < v.length ? v[slot] : missing;
+            }
+            if (current == EMPTY) {
+                return missing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missing;
+    }
+
+    public boolean containsKey(long key) {
+        return key != EMPTY && keys[find(key)] == key;
+    }
+
+    public void put(long key, int value) {
+        checkKey(key);
+        int slot = find(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            if (++size > resizeAt) {
+                values[slot] = value;
+                allocateAndRehash();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Adds the delta to the key's value, starting from 0 if absent.
+     *
+     * @return the new value
+     */
+    public int addTo(long key, int delta) {
+        checkKey(key);
+        int slot = find(key);
+        if (keys[slot] == key) {
+            return values[slot] += delta;
+        }
+        put(key, delta);
+        return delta;
+    }
+
+    public boolean remove(long key) {
+        if (key == EMPTY) {
+            return false;
+        }
+        int slot = find(key);
+        if (keys[slot] != key) {
+            return false;
+        }
+        shiftBack(slot);
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    // Slot de la clave, o el primer vacío donde iría
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Corre hacia atrás las entradas que quedarían inalcanzables al vaciar el slot
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == EMPTY) {
+                break;
+            }
+            int home = mix(key) & mask;
+            // Se mueve sólo si su posición ideal no cae entre el hueco y donde está
+            boolean reachable = gap <= slot ? (gap < home && home <= slot) : (gap < home || home <= slot);
+            if (!reachable) {
+                keys[gap] = key;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = EMPTY;
+    }
+
+    private void allocateAndRehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        values = new int[capacity];
+        keys = new long[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = Integer.highestOneBit((int) Math.ceil(expectedSize / LOAD_FACTOR) - 1) << 1;
+        return Math.max(capacity, 16);
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key 0 is reserved.");
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
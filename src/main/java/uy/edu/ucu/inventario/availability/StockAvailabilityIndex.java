@@ -0,0 +1,269 @@
+package uy.edu.ucu.inventario.availability;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Node-local copy of the stock table: quantity per (product, deposit), with an entry for
+ * every stock row. Lookups are optimistic {@link StampedLock} reads over a primitive map,
+ * so they neither allocate nor block. Quantities include write-behind deltas not yet
+ * flushed, i.e. they are what the next movement will see.
+ *
+ * Loaded at startup by streaming the stock table. Writers publish changes made in a
+ * transaction only when it commits, holding the pair's stock lock, so the index never
+ * shows a value that was rolled back. Assumes this is the only instance writing stock.
+ *
+ * Also keeps each product's total across deposits, and tells registered
+ * {@link ChangeListener}s which pairs changed once a change is visible.
+ */
+@Component
+public class StockAvailabilityIndex {
+
+    private static final int ABSENT = Integer.MIN_VALUE;
+    private static final int LOAD_FETCH_SIZE = 10_000;
+    private static final long MAX_ID = 0xFFFF_FFFFL;
+
+    private final StampedLock lock = new StampedLock();
+    private final LongIntHashMap quantities = new LongIntHashMap(1024);
+    private final LongIntHashMap totals = new LongIntHashMap(1024);
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public StockAvailabilityIndex(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /** Notified after the quantity of a pair changed, outside the index lock. */
+    @FunctionalInterface
+    public interface ChangeListener {
+        void quantityChanged(long productId, long depositId);
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @PostConstruct
+    void load() {
+        // Dentro de una transacción el driver usa un cursor y trae las filas de a fetchSize
+        readOnlyTransaction.executeWithoutResult(status -> {
+            long stamp = lock.writeLock();
+            try {
+                quantities.clear();
+                totals.clear();
+                jdbcTemplate.query(con -> {
+                    PreparedStatement statement = con.prepareStatement("SELECT product_id, deposit_id, quantity FROM stock");
+                    statement.setFetchSize(LOAD_FETCH_SIZE);
+                    return statement;
+                }, rs -> {
+                    putLocked(key(rs.getLong(1), rs.getLong(2)), rs.getInt(3));
+                });
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        });
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return quantities.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the quantity, or 0 if the product has no stock row in the deposit
+     */
+    public int quantity(long productId, long depositId) {
+        int quantity = lookup(productId, depositId);
+        return quantity == ABSENT ? 0 : quantity;
+    }
+
+    public boolean contains(long productId, long depositId) {
+        return lookup(productId, depositId) != ABSENT;
+    }
+
+    /**
+     * @return the product's quantity summed over all deposits
+     */
+    public int productTotal(long productId) {
+        if (productId <= 0 || productId > MAX_ID) {
+            return 0;
+        }
+        long stamp = lock.tryOptimisticRead();
+        int total = totals.get(productId, 0);
+        if (lock.validate(stamp)) {
+            return total;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return totals.get(productId, 0);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Receives each pair of {@link #forEach}. */
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(long productId, long depositId, int quantity);
+    }
+
+    /**
+     * Visits every pair under a read lock. Scans the whole map: meant for bulk requests,
+     * not per-movement checks.
+     */
+    public void forEach(PairConsumer consumer) {
+        long stamp = lock.readLock();
+        try {
+            quantities.forEach((key, quantity) -> consumer.accept(key >>> 32, key & MAX_ID, quantity));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void set(long productId, long depositId, int quantity) {
+        apply(key(productId, depositId), quantity);
+    }
+
+    public void add(long productId, long depositId, int delta) {
+        long key = key(productId, depositId);
+        long stamp = lock.writeLock();
+        try {
+            quantities.addTo(key, delta);
+            totals.addTo(productId, delta);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged(key);
+    }
+
+    public void remove(long productId, long depositId) {
+        apply(key(productId, depositId), ABSENT);
+    }
+
+    /**
+     * Records the row's new quantity once the current transaction commits (right away
+     * without one). Within a transaction the last value per pair wins.
+     */
+    public void setAfterCommit(long productId, long depositId, int quantity) {
+        publish(key(productId, depositId), quantity);
+    }
+
+    /** Like {@link #setAfterCommit}, for a row that was deleted. */
+    public void removeAfterCommit(long productId, long depositId) {
+        publish(key(productId, depositId), ABSENT);
+    }
+
+    private int lookup(long productId, long depositId) {
+        if (productId <= 0 || productId > MAX_ID || depositId <= 0 || depositId > MAX_ID) {
+            return ABSENT;
+        }
+        long key = (productId << 32) | depositId;
+
+        long stamp = lock.tryOptimisticRead();
+        int quantity = quantities.get(key, ABSENT);
+        if (lock.validate(stamp)) {
+            return quantity;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return quantities.get(key, ABSENT);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void publish(long key, int quantity) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(key, quantity);
+            return;
+        }
+
+        LongIntHashMap changes = (LongIntHashMap) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            LongIntHashMap bound = new LongIntHashMap(16);
+            changes = bound;
+            TransactionSynchronizationManager.bindResource(this, bound);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    long stamp = lock.writeLock();
+                    try {
+                        bound.forEach(StockAvailabilityIndex.this::applyLocked);
+                    } finally {
+                        lock.unlockWrite(stamp);
+                    }
+                    bound.forEach((key, quantity) -> notifyChanged(key));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(StockAvailabilityIndex.this);
+                }
+            });
+        }
+        changes.put(key, quantity);
+    }
+
+    private void apply(long key, int quantity) {
+        long stamp = lock.writeLock();
+        try {
+            applyLocked(key, quantity);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged(key);
+    }
+
+    private void applyLocked(long key, int quantity) {
+        if (quantity == ABSENT) {
+            int previous = quantities.get(key, ABSENT);
+            if (previous != ABSENT) {
+                quantities.remove(key);
+                totals.addTo(key >>> 32, -previous);
+            }
+        } else {
+            putLocked(key, quantity);
+        }
+    }
+
+    private void putLocked(long key, int quantity) {
+        int previous = quantities.get(key, 0);
+        quantities.put(key, quantity);
+        totals.addTo(key >>> 32, quantity - previous);
+    }
+
+    private void notifyChanged(long key) {
+        for (ChangeListener listener : listeners) {
+            listener.quantityChanged(key >>> 32, key & MAX_ID);
+        }
+    }
+
+    // Producto en los 32 bits altos y depósito en los bajos
+    private static long key(long productId, long depositId) {
+        if (productId <= 0 || productId > MAX_ID || depositId <= 0 || depositId > MAX_ID) {
+            throw new IllegalArgumentException("Stock ids out of range: " + productId + ", " + depositId);
+        }
+        return (productId << 32) | depositId;
+    }
+}
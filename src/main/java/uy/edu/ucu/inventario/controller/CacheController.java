@@ -0,0 +1,42 @@
+package uy.edu.ucu.inventario.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import uy.edu.ucu.inventario.service.CacheStatsService;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    private final CacheStatsService cacheStatsService;
+
+    public CacheController(CacheStatsService cacheStatsService) {
+        this.cacheStatsService = cacheStatsService;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", cacheStatsService.snapshot());
+        response.put("message", "Cache statistics retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    // Reinicia los contadores para medir un intervalo concreto
+    @DeleteMapping("/stats")
+    public ResponseEntity<Map<String, Object>> resetStats() {
+        cacheStatsService.reset();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Cache statistics reset successfully.");
+        return ResponseEntity.ok(response);
+    }
+}
@@ -49,7 +49,7 @@ public class ProductController {
 
     @GetMapping("/{id}")
     public ResponseEntity<Map<String, Object>> get(@PathVariable Long id) {
-        return productService.getById(id)
+        return productService.getDetailsById(id)
                 .map(product -> {
                     Map<String, Object> response = new HashMap<>();
                     response.put("success", true);
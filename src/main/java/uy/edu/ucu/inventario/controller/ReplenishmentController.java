@@ -0,0 +1,62 @@
+package uy.edu.ucu.inventario.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import uy.edu.ucu.inventario.dto.ReplenishmentRun;
+import uy.edu.ucu.inventario.service.ReplenishmentPlanner;
+
+/**
+ * REST Controller for the replenishment planner: runs and reorder suggestions.
+ */
+@RestController
+@RequestMapping("/api/replenishment")
+public class ReplenishmentController {
+
+    private final ReplenishmentPlanner replenishmentPlanner;
+
+    public ReplenishmentController(ReplenishmentPlanner replenishmentPlanner) {
+        this.replenishmentPlanner = replenishmentPlanner;
+    }
+
+    // Sugerencias con algo para pedir, las de menos días de cobertura primero
+    @GetMapping("/suggestions")
+    public ResponseEntity<Map<String, Object>> listSuggestions(
+            @RequestParam(required = false) Long depositId,
+            @RequestParam(required = false) Integer limit
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", replenishmentPlanner.listSuggestions(depositId, limit));
+        response.put("message", "Replenishment suggestions retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/runs")
+    public ResponseEntity<Map<String, Object>> listRuns() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", replenishmentPlanner.listRuns());
+        response.put("message", "Replenishment runs retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    // full=true vuelve a agregar toda la ventana en lugar de sólo los días desde la última corrida
+    @PostMapping("/runs")
+    public ResponseEntity<Map<String, Object>> run(@RequestParam(defaultValue = "false") boolean full) {
+        ReplenishmentRun run = replenishmentPlanner.run(full);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", run);
+        response.put("message", "Replenishment run completed successfully.");
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+}
@@ -0,0 +1,120 @@
+package uy.edu.ucu.inventario.controller;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import uy.edu.ucu.inventario.dto.ReservationRequest;
+import uy.edu.ucu.inventario.entity.StockMovement;
+import uy.edu.ucu.inventario.reservation.Reservation;
+import uy.edu.ucu.inventario.service.ReservationService;
+
+/**
+ * REST Controller for stock reservations (holds taken during checkout).
+ */
+@RestController
+@RequestMapping("/api/reservations")
+public class ReservationController {
+
+    private final ReservationService reservationService;
+
+    public ReservationController(ReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> create(@RequestBody ReservationRequest request) {
+        Reservation reservation = reservationService.reserve(request);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", transform(reservation));
+        response.put("message", "Stock reserved successfully.");
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> get(@PathVariable long id) {
+        return reservationService.getById(id)
+                .map(reservation -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("data", transform(reservation));
+                    response.put("message", "Reservation found.");
+                    return ResponseEntity.ok(response);
+                })
+                .orElseGet(this::notFound);
+    }
+
+    @PostMapping("/{id}/confirm")
+    public ResponseEntity<Map<String, Object>> confirm(@PathVariable long id) {
+        StockMovement movement = reservationService.confirm(id);
+        Map<String, Object> data = new HashMap<>();
+        data.put("reservationId", id);
+        data.put("movementId", movement.getId());
+        data.put("quantity", movement.getQuantity());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", data);
+        response.put("message", "Reservation confirmed.");
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> release(@PathVariable long id) {
+        if (!reservationService.release(id)) {
+            return notFound();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Reservation released.");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/availability")
+    public ResponseEntity<Map<String, Object>> availability(@RequestParam long productId, @RequestParam long depositId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", reservationService.availability(productId, depositId));
+        response.put("message", "Stock availability retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", reservationService.stats());
+        response.put("message", "Reservation statistics retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    private Map<String, Object> transform(Reservation reservation) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", reservation.getId());
+        map.put("productId", reservation.getProductId());
+        map.put("depositId", reservation.getDepositId());
+        map.put("quantity", reservation.getQuantity());
+        map.put("userId", reservation.getUserId());
+        map.put("expiresAt", Instant.ofEpochMilli(reservation.getExpiresAtMillis()));
+        return map;
+    }
+
+    private ResponseEntity<Map<String, Object>> notFound() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", "Reservation not found or already expired.");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+}
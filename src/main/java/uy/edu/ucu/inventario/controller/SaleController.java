@@ -1,11 +1,17 @@
 package uy.edu.ucu.inventario.controller;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,12 +19,26 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import uy.edu.ucu.inventario.dto.SaleFilter;
+import uy.edu.ucu.inventario.dto.SalesRollupRebuild;
 import uy.edu.ucu.inventario.entity.Product;
 import uy.edu.ucu.inventario.entity.Sale;
+import uy.edu.ucu.inventario.entity.SaleItem;
+import uy.edu.ucu.inventario.enums.PaymentMethod;
+import uy.edu.ucu.inventario.idempotency.IdempotencyStore;
+import uy.edu.ucu.inventario.leaderboard.SalesLeaderboard;
+import uy.edu.ucu.inventario.pagination.IdCursor;
+import uy.edu.ucu.inventario.pagination.CursorPage;
+import uy.edu.ucu.inventario.service.SaleExportService;
 import uy.edu.ucu.inventario.service.SaleService;
+import uy.edu.ucu.inventario.service.SalesRollupService;
 
 /**
  * REST Controller for the Sale entity.
@@ -28,15 +48,45 @@ import uy.edu.ucu.inventario.service.SaleService;
 public class SaleController {
 
     private final SaleService saleService;
+    private final IdempotencyStore idempotencyStore;
+    private final SalesRollupService salesRollup;
+    private final SalesLeaderboard leaderboard;
+    private final SaleExportService exportService;
 
-    public SaleController(SaleService saleService) {
+    public SaleController(SaleService saleService, IdempotencyStore idempotencyStore, SalesRollupService salesRollup,
+                          SalesLeaderboard leaderboard, SaleExportService exportService) {
         this.saleService = saleService;
+        this.idempotencyStore = idempotencyStore;
+        this.salesRollup = salesRollup;
+        this.leaderboard = leaderboard;
+        this.exportService = exportService;
     }
 
+    /**
+     * Lists one page of sales. With a cursor the page continues after it and no total is computed;
+     * otherwise the classic page/size is used and the total comes from a short-lived cached count.
+     */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> list() {
-        List<Sale> sales = saleService.listAll();
-        long totalCount = saleService.getTotalCount();
+    public ResponseEntity<Map<String, Object>> list(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) PaymentMethod paymentMethod,
+            @RequestParam(required = false) String reseller,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size
+    ) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page index must not be negative.");
+        }
+
+        SaleFilter filter = filter(from, to, paymentMethod, reseller);
+        int pageSize = CursorPage.clampSize(size);
+        boolean keyset = cursor != null && !cursor.isBlank();
+
+        Slice<Sale> sales = keyset
+                ? saleService.searchAfter(filter, cursor, pageSize)
+                : saleService.search(filter, page, pageSize);
 
         List<Map<String, Object>> transformed = new ArrayList<>();
         for (Sale sale : sales) {
@@ -45,12 +95,104 @@ public class SaleController {
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("totalCount", totalCount);
+        if (!keyset) {
+            response.put("totalCount", saleService.countMatching(filter));
+            response.put("page", page);
+        }
+        response.put("size", pageSize);
+        response.put("hasMore", sales.hasNext());
+        response.put("nextCursor", sales.hasNext()
+                ? IdCursor.encode(sales.getContent().get(sales.getNumberOfElements() - 1).getId())
+                : null);
         response.put("data", transformed);
         response.put("message", "Sales list retrieved successfully.");
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Sales count and total between two days (both inclusive), grouped by day, payment method
+     * or reseller (or not grouped with groupBy=none). Read from the daily rollup, not from the sales.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) PaymentMethod paymentMethod,
+            @RequestParam(required = false) String reseller,
+            @RequestParam(required = false) String groupBy
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", salesRollup.stats(from, to, paymentMethod, reseller, SalesRollupService.GroupBy.parse(groupBy)));
+        response.put("message", "Sales stats retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    // Sin fechas recalcula desde la venta más antigua hasta la más reciente
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        SalesRollupRebuild rebuild = salesRollup.rebuild(from, to);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", rebuild);
+        response.put("message", "Sales stats rebuilt successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Top resellers and top products of the current day, week or month, from memory.
+     * Counts are approximate when there are more of them than the leaderboard tracks.
+     */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<Map<String, Object>> leaderboard(
+            @RequestParam(required = false) String window,
+            @RequestParam(required = false) Integer limit
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", leaderboard.top(SalesLeaderboard.Window.parse(window), limit));
+        response.put("message", "Sales leaderboard retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Downloads every sale matching the filters as CSV or NDJSON, optionally gzipped.
+     * The rows are streamed from the database as they are read, whatever the size of the export.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) PaymentMethod paymentMethod,
+            @RequestParam(required = false) String reseller,
+            @RequestParam(required = false) String format,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        SaleFilter filter = filter(from, to, paymentMethod, reseller);
+        SaleExportService.Format exportFormat = SaleExportService.Format.parse(format);
+        String fileName = "sales." + exportFormat.extension() + (gzip ? ".gz" : "");
+
+        StreamingResponseBody body = output -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(output, 64 * 1024);
+                exportService.export(filter, exportFormat, compressed);
+                compressed.finish();
+            } else {
+                exportService.export(filter, exportFormat, output);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(gzip
+                        ? MediaType.parseMediaType("application/gzip")
+                        : MediaType.parseMediaType(exportFormat.contentType() + ";charset=UTF-8"))
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Map<String, Object>> get(@PathVariable Long id) {
         return saleService.getById(id)
@@ -69,14 +211,23 @@ public class SaleController {
                 });
     }
 
+    /**
+     * Creates a sale. With items it is a checkout that also takes the units out of stock.
+     * A retry carrying the same Idempotency-Key gets the original response.
+     */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> create(@RequestBody Sale sale) {
-        Sale saved = saleService.save(sale);
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("data", transformSale(saved));
-        response.put("message", "Sale created successfully.");
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    public ResponseEntity<Map<String, Object>> create(
+            @RequestBody Sale sale,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey
+    ) {
+        return idempotencyStore.execute("sale", idempotencyKey, sale, () -> {
+            Sale saved = saleService.save(sale);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", transformSale(saved));
+            response.put("message", "Sale created successfully.");
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        });
     }
 
     @PutMapping("/{id}")
@@ -109,6 +260,10 @@ public class SaleController {
             response.put("message", "Sale deleted successfully.");
             return ResponseEntity.ok(response);
 
+        } catch (ResponseStatusException ex) {
+            // El 404 y el 409 del servicio los responde GlobalExceptionHandler con su estado
+            throw ex;
+
         } catch (IllegalStateException ex) {
             response.put("success", false);
             response.put("error", ex.getMessage());
@@ -121,6 +276,16 @@ public class SaleController {
         }
     }
 
+    // Días inclusivos: "to" abarca hasta el final de ese día
+    private static SaleFilter filter(LocalDate from, LocalDate to, PaymentMethod paymentMethod, String reseller) {
+        return new SaleFilter(
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                paymentMethod,
+                reseller
+        );
+    }
+
     private Map<String, Object> transformSale(Sale sale) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", sale.getId());
@@ -141,6 +306,19 @@ public class SaleController {
         }
 
         map.put("product", productList);
+
+        List<Map<String, Object>> itemList = new ArrayList<>();
+        for (SaleItem item : sale.getItems()) {
+            Map<String, Object> iMap = new HashMap<>();
+            iMap.put("id", item.getId());
+            iMap.put("productId", item.getProduct().getId());
+            iMap.put("depositId", item.getDeposit().getId());
+            iMap.put("quantity", item.getQuantity());
+            iMap.put("unitPrice", item.getUnitPrice());
+            itemList.add(iMap);
+        }
+
+        map.put("items", itemList);
         return map;
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package uy.edu.ucu.inventario.controller;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,10 +15,15 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import uy.edu.ucu.inventario.alert.StockAlertEngine;
+import uy.edu.ucu.inventario.dto.StockSnapshotInfo;
+import uy.edu.ucu.inventario.dto.StockThreshold;
 import uy.edu.ucu.inventario.entity.Stock;
 import uy.edu.ucu.inventario.service.StockService;
+import uy.edu.ucu.inventario.service.StockSnapshotService;
 
 /**
  * REST Controller for the Stock entity.
@@ -28,9 +34,17 @@ import uy.edu.ucu.inventario.service.StockService;
 public class StockController {
 
     private final StockService stockService;
+    private final StockSnapshotService stockSnapshotService;
+    private final StockAlertEngine stockAlertEngine;
 
-    public StockController(StockService stockService) {
+    public StockController(
+            StockService stockService,
+            StockSnapshotService stockSnapshotService,
+            StockAlertEngine stockAlertEngine
+    ) {
         this.stockService = stockService;
+        this.stockSnapshotService = stockSnapshotService;
+        this.stockAlertEngine = stockAlertEngine;
     }
 
     @GetMapping
@@ -61,6 +75,93 @@ public class StockController {
                 });
     }
 
+    // Stock de un producto en un depósito al cierre del día indicado (fecha ISO, ej. 2025-03-31)
+    @GetMapping("/as-of")
+    public ResponseEntity<Map<String, Object>> getAsOf(
+            @RequestParam long productId,
+            @RequestParam long depositId,
+            @RequestParam LocalDate date
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", stockSnapshotService.quantityAsOf(productId, depositId, date));
+        response.put("message", "Stock as of " + date + " retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    // Disponibilidad en bloque desde el índice en memoria (ej. ?productIds=1,2&depositIds=3)
+    @GetMapping("/availability")
+    public ResponseEntity<Map<String, Object>> getAvailability(
+            @RequestParam List<Long> productIds,
+            @RequestParam(required = false) List<Long> depositIds
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", stockService.availability(productIds, depositIds));
+        response.put("message", "Stock availability retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    // Umbrales de reposición incumplidos, mantenidos en memoria a medida que cambia el stock
+    @GetMapping("/alerts")
+    public ResponseEntity<Map<String, Object>> getAlerts() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", stockAlertEngine.alerts());
+        response.put("message", "Stock alerts retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/thresholds")
+    public ResponseEntity<Map<String, Object>> listThresholds() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", stockAlertEngine.thresholds());
+        response.put("message", "Stock thresholds retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    // Sin depositId el umbral aplica al total del producto en todos los depósitos
+    @PutMapping("/thresholds")
+    public ResponseEntity<Map<String, Object>> setThreshold(@RequestBody StockThreshold threshold) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", stockAlertEngine.setThreshold(threshold));
+        response.put("message", "Stock threshold saved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/thresholds")
+    public ResponseEntity<Map<String, Object>> deleteThreshold(
+            @RequestParam long productId,
+            @RequestParam(required = false) Long depositId
+    ) {
+        stockAlertEngine.removeThreshold(productId, depositId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Stock threshold deleted successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/snapshots")
+    public ResponseEntity<Map<String, Object>> listSnapshots() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", stockSnapshotService.listSnapshots());
+        response.put("message", "Stock snapshots retrieved successfully.");
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/snapshots")
+    public ResponseEntity<Map<String, Object>> createSnapshot() {
+        StockSnapshotInfo snapshot = stockSnapshotService.createSnapshot();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", snapshot);
+        response.put("message", "Stock snapshot created successfully.");
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
     @PostMapping
     public ResponseEntity<Map<String, Object>> create(@RequestBody Stock stock) {
         Stock saved = stockService.save(stock);
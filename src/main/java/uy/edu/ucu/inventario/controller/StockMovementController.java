@@ -3,8 +3,13 @@ package uy.edu.ucu.inventario.controller;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import uy.edu.ucu.inventario.dto.BatchItemResult;
+import uy.edu.ucu.inventario.dto.StockMovementView;
 import uy.edu.ucu.inventario.entity.StockMovement;
 import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.idempotency.IdempotencyStore;
+import uy.edu.ucu.inventario.lock.StripedLockManager;
+import uy.edu.ucu.inventario.pagination.CursorPage;
 import uy.edu.ucu.inventario.service.StockMovementService;
 
 import java.util.*;
@@ -14,28 +19,35 @@ import java.util.*;
 public class StockMovementController {
 
     private final StockMovementService stockMovementService;
+    private final StripedLockManager stockLocks;
+    private final IdempotencyStore idempotencyStore;
 
-    public StockMovementController(StockMovementService stockMovementService) {
+    public StockMovementController(
+            StockMovementService stockMovementService,
+            StripedLockManager stockLocks,
+            IdempotencyStore idempotencyStore
+    ) {
         this.stockMovementService = stockMovementService;
+        this.stockLocks = stockLocks;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAll() {
-        List<StockMovement> movements = stockMovementService.listAll();
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("data", transformList(movements));
-        response.put("message", "Stock movements retrieved successfully.");
-        return ResponseEntity.ok(response);
+    public ResponseEntity<Map<String, Object>> getAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size
+    ) {
+        CursorPage<StockMovementView> page = stockMovementService.listPage(cursor, size);
+        return ResponseEntity.ok(pageResponse(page, "Stock movements retrieved successfully."));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Map<String, Object>> getById(@PathVariable Long id) {
-        return stockMovementService.getById(id)
+        return stockMovementService.getViewById(id)
                 .map(movement -> {
                     Map<String, Object> response = new HashMap<>();
                     response.put("success", true);
-                    response.put("data", transformMovement(movement));
+                    response.put("data", transformView(movement));
                     response.put("message", "Stock movement found.");
                     return ResponseEntity.ok(response);
                 })
@@ -48,56 +60,95 @@ public class StockMovementController {
     }
 
     @GetMapping("/type/{type}")
-    public ResponseEntity<Map<String, Object>> getByType(@PathVariable MovementType type) {
-        List<StockMovement> movements = stockMovementService.findByType(type);
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("data", transformList(movements));
-        response.put("message", "Stock movements by type retrieved successfully.");
-        return ResponseEntity.ok(response);
+    public ResponseEntity<Map<String, Object>> getByType(
+            @PathVariable MovementType type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size
+    ) {
+        CursorPage<StockMovementView> page = stockMovementService.findByType(type, cursor, size);
+        return ResponseEntity.ok(pageResponse(page, "Stock movements by type retrieved successfully."));
     }
 
     @GetMapping("/origin/{depositId}")
-    public ResponseEntity<Map<String, Object>> getByOriginDeposit(@PathVariable Long depositId) {
-        List<StockMovement> movements = stockMovementService.findByOriginDeposit(depositId);
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("data", transformList(movements));
-        response.put("message", "Stock movements by origin deposit retrieved successfully.");
-        return ResponseEntity.ok(response);
+    public ResponseEntity<Map<String, Object>> getByOriginDeposit(
+            @PathVariable Long depositId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size
+    ) {
+        CursorPage<StockMovementView> page = stockMovementService.findByOriginDeposit(depositId, cursor, size);
+        return ResponseEntity.ok(pageResponse(page, "Stock movements by origin deposit retrieved successfully."));
     }
 
     @GetMapping("/destination/{depositId}")
-    public ResponseEntity<Map<String, Object>> getByDestinationDeposit(@PathVariable Long depositId) {
-        List<StockMovement> movements = stockMovementService.findByDestinationDeposit(depositId);
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("data", transformList(movements));
-        response.put("message", "Stock movements by destination deposit retrieved successfully.");
-        return ResponseEntity.ok(response);
+    public ResponseEntity<Map<String, Object>> getByDestinationDeposit(
+            @PathVariable Long depositId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size
+    ) {
+        CursorPage<StockMovementView> page = stockMovementService.findByDestinationDeposit(depositId, cursor, size);
+        return ResponseEntity.ok(pageResponse(page, "Stock movements by destination deposit retrieved successfully."));
     }
 
     @GetMapping("/transfer/{originId}/{destinationId}")
     public ResponseEntity<Map<String, Object>> getTransfersBetween(
             @PathVariable Long originId,
-            @PathVariable Long destinationId
+            @PathVariable Long destinationId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size
     ) {
-        List<StockMovement> movements = stockMovementService.findTransfersBetweenDeposits(originId, destinationId);
+        CursorPage<StockMovementView> page =
+                stockMovementService.findTransfersBetweenDeposits(originId, destinationId, cursor, size);
+        return ResponseEntity.ok(pageResponse(page, "Transfers between deposits retrieved successfully."));
+    }
+
+    // Contención de los locks por (producto, depósito): stripes más disputados primero
+    @GetMapping("/lock-stats")
+    public ResponseEntity<Map<String, Object>> getLockStats(@RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("stripes", stockLocks.stripeCount());
+        data.put("acquisitions", stockLocks.totalAcquisitions());
+        data.put("contended", stockLocks.totalContended());
+        data.put("hottest", stockLocks.contendedStripes(Math.max(limit, 1)));
+
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("data", transformList(movements));
-        response.put("message", "Transfers between deposits retrieved successfully.");
+        response.put("data", data);
+        response.put("message", "Stock lock statistics retrieved successfully.");
         return ResponseEntity.ok(response);
     }
 
+    // Con Idempotency-Key, un reintento del cliente recibe la respuesta original sin crear otro movimiento
     @PostMapping
-    public ResponseEntity<Map<String, Object>> create(@RequestBody StockMovement movement) {
-        StockMovement saved = stockMovementService.save(movement);
+    public ResponseEntity<Map<String, Object>> create(
+            @RequestBody StockMovement movement,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey
+    ) {
+        return idempotencyStore.execute("stock-movement", idempotencyKey, movement, () -> {
+            StockMovement saved = stockMovementService.save(movement);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", transformMovement(saved));
+            response.put("message", "Stock movement created successfully.");
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        });
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> createBatch(@RequestBody List<StockMovement> movements) {
+        List<BatchItemResult> results = stockMovementService.saveBatch(movements);
+        long created = results.stream().filter(BatchItemResult::success).count();
+        long failed = results.size() - created;
+
         Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("data", transformMovement(saved));
-        response.put("message", "Stock movement created successfully.");
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        response.put("success", failed == 0);
+        response.put("data", results);
+        response.put("created", created);
+        response.put("failed", failed);
+        response.put("message", failed == 0
+                ? "Stock movements created successfully."
+                : created + " stock movements created, " + failed + " rejected.");
+        // 207 cuando el lote se aplicó sólo en parte
+        return ResponseEntity.status(failed == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS).body(response);
     }
 
     @PutMapping("/{id}")
@@ -131,14 +182,55 @@ public class StockMovementController {
 
     // === Helpers ===
 
-    private List<Map<String, Object>> transformList(List<StockMovement> list) {
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (StockMovement m : list) {
-            result.add(transformMovement(m));
+    private Map<String, Object> pageResponse(CursorPage<StockMovementView> page, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", transformList(page.items()));
+        response.put("nextCursor", page.nextCursor());
+        response.put("hasMore", page.hasMore());
+        response.put("message", message);
+        return response;
+    }
+
+    private List<Map<String, Object>> transformList(List<StockMovementView> list) {
+        List<Map<String, Object>> result = new ArrayList<>(list.size());
+        for (StockMovementView v : list) {
+            result.add(transformView(v));
         }
         return result;
     }
 
+    // Mismo formato que transformMovement, armado desde la proyección
+    private Map<String, Object> transformView(StockMovementView v) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", v.id());
+        map.put("quantity", v.quantity());
+        map.put("type", v.type());
+        map.put("createdAt", v.date());
+        map.put("product", reference(v.productId(), v.productName()));
+
+        if (v.originDepositId() != null) {
+            map.put("originDeposit", reference(v.originDepositId(), v.originDepositName()));
+        }
+
+        if (v.destinationDepositId() != null) {
+            map.put("destinationDeposit", reference(v.destinationDepositId(), v.destinationDepositName()));
+        }
+
+        if (v.userId() != null) {
+            map.put("user", reference(v.userId(), v.userFirstName()));
+        }
+
+        return map;
+    }
+
+    private Map<String, Object> reference(Long id, String name) {
+        Map<String, Object> ref = new HashMap<>();
+        ref.put("id", id);
+        ref.put("name", name);
+        return ref;
+    }
+
     private Map<String, Object> transformMovement(StockMovement m) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", m.getId());
@@ -170,7 +262,7 @@ public class StockMovementController {
             Map<String, Object> userDetails = new HashMap<>();
             userDetails.put("id", m.getUser().getId());
             userDetails.put("name", m.getUser().getFirstName());
-            userDetails.put("user", userDetails);
+            map.put("user", userDetails);
         }
 
         return map;
@@ -0,0 +1,15 @@
+package uy.edu.ucu.inventario.dto;
+
+/**
+ * Outcome of one element of a batch request, identified by its position in the request.
+ */
+public record BatchItemResult(int index, boolean success, Long id, String error) {
+
+    public static BatchItemResult created(int index, Long id) {
+        return new BatchItemResult(index, true, id, null);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, false, null, error);
+    }
+}
@@ -0,0 +1,10 @@
+package uy.edu.ucu.inventario.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Top resellers and top products of the current day, week or month, which started on {@code from}.
+ */
+public record Leaderboard(String window, LocalDate from, List<LeaderboardEntry> resellers, List<LeaderboardEntry> products) {
+}
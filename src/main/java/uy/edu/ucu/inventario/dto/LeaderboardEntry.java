@@ -0,0 +1,9 @@
+package uy.edu.ucu.inventario.dto;
+
+/**
+ * One position of a leaderboard: a reseller or a product (only one of them is set) and
+ * the sales it appears in. The count is approximate: it may be over by at most
+ * {@code maxError}, which is 0 when the count is exact.
+ */
+public record LeaderboardEntry(String reseller, Long productId, String productName, long sales, long maxError) {
+}
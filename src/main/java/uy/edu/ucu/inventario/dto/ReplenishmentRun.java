@@ -0,0 +1,19 @@
+package uy.edu.ucu.inventario.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * One run of the replenishment planner: from which day it re-aggregated demand, and how
+ * many deposits and suggestions it produced.
+ */
+public record ReplenishmentRun(
+    long id,
+    Instant startedAt,
+    Instant finishedAt,
+    LocalDate fromDay,
+    boolean fullRebuild,
+    int deposits,
+    int suggestions
+) {
+}
@@ -0,0 +1,18 @@
+package uy.edu.ucu.inventario.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Planner output for a product in a deposit: average daily exits over the window, days
+ * the current quantity lasts at that pace, and how much to order to cover lead time plus
+ * the target cover.
+ */
+public record ReplenishmentSuggestion(
+    long depositId,
+    long productId,
+    BigDecimal avgDailyDemand,
+    int quantity,
+    BigDecimal daysOfCover,
+    int suggestedQuantity
+) {
+}
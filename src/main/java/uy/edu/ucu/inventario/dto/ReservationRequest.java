@@ -0,0 +1,7 @@
+package uy.edu.ucu.inventario.dto;
+
+/**
+ * Body of a reservation request. A null ttlSeconds uses the configured default.
+ */
+public record ReservationRequest(Long productId, Long depositId, Integer quantity, Long userId, Long ttlSeconds) {
+}
@@ -0,0 +1,12 @@
+package uy.edu.ucu.inventario.dto;
+
+import java.time.LocalDateTime;
+
+import uy.edu.ucu.inventario.enums.PaymentMethod;
+
+/**
+ * Optional filters for the sales listing. Null fields are ignored.
+ * The date range is half-open: [from, to).
+ */
+public record SaleFilter(LocalDateTime from, LocalDateTime to, PaymentMethod paymentMethod, String reseller) {
+}
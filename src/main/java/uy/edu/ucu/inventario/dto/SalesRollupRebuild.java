@@ -0,0 +1,10 @@
+package uy.edu.ucu.inventario.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Result of rebuilding the daily sales rollup over a range of days (both inclusive).
+ * The range is null when there were no sales to aggregate.
+ */
+public record SalesRollupRebuild(LocalDate from, LocalDate to, int chunks, int rows, long elapsedMillis) {
+}
@@ -0,0 +1,18 @@
+package uy.edu.ucu.inventario.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Sales count and total over a range of days (both inclusive), optionally split in rows.
+ */
+public record SalesStats(
+    LocalDate from,
+    LocalDate to,
+    String groupBy,
+    long salesCount,
+    BigDecimal total,
+    List<SalesStatsRow> rows
+) {
+}
@@ -0,0 +1,19 @@
+package uy.edu.ucu.inventario.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import uy.edu.ucu.inventario.enums.PaymentMethod;
+
+/**
+ * One group of the sales stats. Only the field the stats are grouped by is set; the
+ * reseller is null for the sales without one.
+ */
+public record SalesStatsRow(
+    LocalDate day,
+    PaymentMethod paymentMethod,
+    String reseller,
+    long salesCount,
+    BigDecimal total
+) {
+}
@@ -0,0 +1,8 @@
+package uy.edu.ucu.inventario.dto;
+
+/**
+ * A threshold currently breached. {@code depositId} is null for a product-wide threshold,
+ * whose quantity is the total over all deposits.
+ */
+public record StockAlert(long productId, Long depositId, int quantity, int minQuantity) {
+}
@@ -0,0 +1,21 @@
+package uy.edu.ucu.inventario.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Stock of a product in a deposit at the end of a day, and how it was worked out:
+ * from which snapshot ("snapshot") or from the current stock ("live"), and how many
+ * movements had to be replayed on top of it.
+ */
+public record StockAsOf(
+    long productId,
+    long depositId,
+    LocalDate date,
+    int quantity,
+    String source,
+    Long snapshotId,
+    Instant snapshotTakenAt,
+    long replayedMovements
+) {
+}
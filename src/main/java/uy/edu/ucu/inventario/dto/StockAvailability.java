@@ -0,0 +1,7 @@
+package uy.edu.ucu.inventario.dto;
+
+/**
+ * Stock of a product in a deposit, split into what is held by reservations and what is left to sell.
+ */
+public record StockAvailability(long productId, long depositId, int quantity, int reserved, int available) {
+}
@@ -0,0 +1,25 @@
+package uy.edu.ucu.inventario.dto;
+
+import java.time.LocalDate;
+
+import uy.edu.ucu.inventario.enums.MovementType;
+
+/**
+ * Read-only projection of a stock movement with just the ids and names the API returns.
+ * Built by a single joined JPQL query, so no entity is loaded into the persistence context.
+ */
+public record StockMovementView(
+        Long id,
+        MovementType type,
+        int quantity,
+        LocalDate date,
+        Long productId,
+        String productName,
+        Long originDepositId,
+        String originDepositName,
+        Long destinationDepositId,
+        String destinationDepositName,
+        Long userId,
+        String userFirstName
+) {
+}
@@ -0,0 +1,9 @@
+package uy.edu.ucu.inventario.dto;
+
+import java.time.Instant;
+
+/**
+ * A completed snapshot of the stock table.
+ */
+public record StockSnapshotInfo(long id, Instant takenAt, int rowCount) {
+}
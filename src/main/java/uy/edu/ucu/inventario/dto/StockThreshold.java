@@ -0,0 +1,8 @@
+package uy.edu.ucu.inventario.dto;
+
+/**
+ * Reorder threshold: applies to the product in one deposit, or to the product's total
+ * over all deposits when {@code depositId} is null.
+ */
+public record StockThreshold(Long productId, Long depositId, Integer minQuantity) {
+}
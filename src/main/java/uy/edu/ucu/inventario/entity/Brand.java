@@ -1,6 +1,12 @@
 package uy.edu.ucu.inventario.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
 import jakarta.persistence.*;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.time.LocalDateTime;
 
 /**
@@ -8,7 +14,9 @@ import java.time.LocalDateTime;
  * A brand can be associated with multiple products.
  */
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "brands")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "brands")
 public class Brand {
 
     // === Attributes ===
@@ -29,7 +37,7 @@ public class Brand {
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private int associatedProductCount = 0;
 
     // === Constructors ===
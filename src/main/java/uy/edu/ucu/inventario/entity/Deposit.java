@@ -11,6 +11,10 @@ import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Entity representing a deposit (warehouse).
@@ -18,6 +22,7 @@ import jakarta.persistence.Table;
  */
 @Entity
 @Table(name = "deposits")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "deposits")
 public class Deposit {
 
     // === Attributes ===
@@ -35,12 +40,15 @@ public class Deposit {
     @Column(length = 255)
     private String description;
 
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private int productCount = 0;
 
     @Column(name = "associated_date", nullable = false)
     private LocalDateTime associatedDate;
 
+    @Version
+    private Long version;
+
     // Método que se ejecuta justo antes de guardar la entidad por primera vez
     @PrePersist
     protected void onCreate() {
@@ -74,6 +82,14 @@ public class Deposit {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
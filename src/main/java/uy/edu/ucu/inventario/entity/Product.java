@@ -10,6 +10,7 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -17,16 +18,30 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 /**
  * Entity representing a Product.
  * Each product has an associated brand and category.
+ * Associations are lazy; read paths that need them use the "Product.details" graph.
  */
 @Entity
 @Table(name = "products")
+@NamedEntityGraph(
+    name = Product.DETAILS_GRAPH,
+    attributeNodes = {
+        @NamedAttributeNode("brand"),
+        @NamedAttributeNode("category"),
+        @NamedAttributeNode("deposits")
+    }
+)
 public class Product {
 
+    public static final String DETAILS_GRAPH = "Product.details";
+
     // === Embedded class ===
 
     @Embeddable
@@ -85,15 +100,16 @@ public class Product {
     })
     private MonetaryValue salePrice;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "brand_id", nullable = false)
     private Brand brand;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
 
-    @Column(nullable = false)
+    // Lo mantiene CounterService con UPDATE atómicos; nunca se escribe al actualizar la entidad
+    @Column(nullable = false, updatable = false)
     private int depositsCount = 0;
     
     // Nueva relación Many-to-Many
@@ -105,6 +121,9 @@ public class Product {
     )
     private Set<Deposit> deposits = new HashSet<>();
 
+    @Version
+    private Long version;
+
     // === Constructors ===
 
     public Product() {}
@@ -129,6 +148,14 @@ public class Product {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
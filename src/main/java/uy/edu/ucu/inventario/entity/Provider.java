@@ -2,6 +2,9 @@ package uy.edu.ucu.inventario.entity;
 
 import jakarta.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
@@ -10,6 +13,7 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "providers")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "providers")
 public class Provider {
 
     @Id
@@ -3,8 +3,12 @@ package uy.edu.ucu.inventario.entity;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
@@ -15,8 +19,10 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 import uy.edu.ucu.inventario.enums.PaymentMethod;
@@ -29,7 +35,8 @@ import uy.edu.ucu.inventario.enums.PaymentMethod;
 public class Sale {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sales_seq")
+    @SequenceGenerator(name = "sales_seq", sequenceName = "sales_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = true)
@@ -58,6 +65,8 @@ public class Sale {
     }
 
 
+    // Una página entera de ventas (hasta 500) inicializa sus productos y líneas con una consulta cada uno
+    @BatchSize(size = 500)
     @ManyToMany
     @JoinTable(
         name = "sale_products",
@@ -66,6 +75,11 @@ public class Sale {
     )
     private List<Product> products;
 
+    // Se insertan junto con la venta; no se editan después
+    @BatchSize(size = 500)
+    @OneToMany(mappedBy = "sale", cascade = CascadeType.PERSIST)
+    private List<SaleItem> items = new ArrayList<>();
+
     @Transient
     private Long totalCount;
 
@@ -131,6 +145,14 @@ public class Sale {
         this.products = products;
     }
 
+    public List<SaleItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<SaleItem> items) {
+        this.items = items;
+    }
+
     public Long getTotalCount() {
         return totalCount;
     }
@@ -0,0 +1,116 @@
+package uy.edu.ucu.inventario.entity;
+
+import java.math.BigDecimal;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+/**
+ * One line of a sale: a quantity of a product taken from a deposit, at the unit price
+ * it had when it was sold.
+ */
+@Entity
+@Table(name = "sale_items")
+public class SaleItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_items_seq")
+    @SequenceGenerator(name = "sale_items_seq", sequenceName = "sale_items_seq", allocationSize = 50)
+    private Long id;
+
+    // La base borra las líneas junto con la venta (ON DELETE CASCADE)
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "sale_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Sale sale;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "deposit_id", nullable = false)
+    private Deposit deposit;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    // Si no llega en la venta se toma el precio de venta del producto
+    @Column(name = "unit_price", nullable = false, precision = 38, scale = 2)
+    private BigDecimal unitPrice;
+
+    // === Constructors ===
+
+    public SaleItem() {}
+
+    public SaleItem(Product product, Deposit deposit, int quantity, BigDecimal unitPrice) {
+        this.product = product;
+        this.deposit = deposit;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+    }
+
+    // === Getters and Setters ===
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Sale getSale() {
+        return sale;
+    }
+
+    public void setSale(Sale sale) {
+        this.sale = sale;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public void setProduct(Product product) {
+        this.product = product;
+    }
+
+    public Deposit getDeposit() {
+        return deposit;
+    }
+
+    public void setDeposit(Deposit deposit) {
+        this.deposit = deposit;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setUnitPrice(BigDecimal unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+}
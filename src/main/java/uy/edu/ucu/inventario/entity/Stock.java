@@ -7,7 +7,9 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 /**
  * Entity representing the stock of a product in a specific deposit.
@@ -17,7 +19,8 @@ import jakarta.persistence.Table;
 public class Stock {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_seq")
+    @SequenceGenerator(name = "stock_seq", sequenceName = "stock_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -31,6 +34,10 @@ public class Stock {
     @Column(nullable = false)
     private Integer quantity;
 
+    // Bloqueo optimista: un UPDATE con versión vieja falla en lugar de pisar otro cambio
+    @Version
+    private Long version;
+
     // === Constructors ===
 
     public Stock() {}
@@ -51,6 +58,14 @@ public class Stock {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Product getProduct() {
         return product;
     }
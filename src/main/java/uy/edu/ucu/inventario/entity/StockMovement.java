@@ -1,5 +1,7 @@
 package uy.edu.ucu.inventario.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.*;
 import uy.edu.ucu.inventario.enums.MovementType;
 
@@ -14,7 +16,8 @@ import java.time.LocalDateTime;
 public class StockMovement {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movements_seq")
+    @SequenceGenerator(name = "stock_movements_seq", sequenceName = "stock_movements_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -43,6 +46,11 @@ public class StockMovement {
     @JoinColumn(name = "user_id")
     private User user;
 
+    // false mientras el delta espera en el buffer write-behind (ver StockWriteBehind)
+    @JsonIgnore
+    @Column(name = "stock_applied", nullable = false)
+    private boolean stockApplied = true;
+
     // Método que se ejecuta justo antes de guardar la entidad por primera vez
     @PrePersist
     protected void onCreate() {
@@ -139,4 +147,12 @@ public class StockMovement {
     public void setUser(User user) {
         this.user = user;
     }
-}
\ No newline at end of file
+
+    public boolean isStockApplied() {
+        return stockApplied;
+    }
+
+    public void setStockApplied(boolean stockApplied) {
+        this.stockApplied = stockApplied;
+    }
+}
@@ -0,0 +1,252 @@
+package uy.edu.ucu.inventario.idempotency;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Remembers the response of a create request under its {@code Idempotency-Key}, so a
+ * client retry gets the original response instead of running the request again.
+ *
+ * Responses are kept as serialized JSON in an LRU cache in front of the
+ * {@code idempotency_keys} table, which survives restarts and is purged once the keys
+ * expire. Duplicates that arrive while the first request is still running wait for it
+ * and share its outcome. Only returned responses are stored: a request that fails with
+ * an exception can be retried under the same key.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final TypeReference<Map<String, Object>> BODY_TYPE = new TypeReference<>() {};
+
+    private static final String FIND =
+            "SELECT status_code, response_body, request_hash, expires_at FROM idempotency_keys " +
+            "WHERE scope = ? AND idem_key = ? AND expires_at > now()";
+
+    // Una fila vencida que todavía no se purgó se reemplaza
+    private static final String INSERT =
+            "INSERT INTO idempotency_keys (scope, idem_key, request_hash, status_code, response_body, expires_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (scope, idem_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+            "status_code = EXCLUDED.status_code, response_body = EXCLUDED.response_body, " +
+            "expires_at = EXCLUDED.expires_at WHERE idempotency_keys.expires_at <= now()";
+
+    private static final String PURGE = "DELETE FROM idempotency_keys WHERE expires_at <= now()";
+
+    /** A stored response: status, JSON body and the hash of the request that produced it. */
+    private record Stored(int status, byte[] body, byte[] requestHash, long expiresAtMillis) {
+
+        boolean expired() {
+            return System.currentTimeMillis() >= expiresAtMillis;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Map<String, Stored> recent;
+    private final Map<String, CompletableFuture<Stored>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(
+        JdbcTemplate jdbcTemplate,
+        ObjectMapper objectMapper,
+        @Value("${inventario.idempotency.ttl:24h}") Duration ttl,
+        @Value("${inventario.idempotency.cache-size:10000}") int cacheSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        // LinkedHashMap en orden de acceso: el más antiguo sin usar sale primero
+        this.recent = new LinkedHashMap<>(Math.min(cacheSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Runs the action once per key and scope. Without a key the action simply runs.
+     *
+     * @param scope   endpoint the key belongs to, so the same key can be used on different endpoints
+     * @param request request body, hashed to reject a key reused with a different request
+     * @throws ResponseStatusException 422 if the key was used with a different request
+     */
+    public ResponseEntity<Map<String, Object>> execute(
+        String scope,
+        String key,
+        Object request,
+        Supplier<ResponseEntity<Map<String, Object>>> action
+    ) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    HEADER + " must have between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+
+        String cacheKey = scope + ':' + key;
+        byte[] requestHash = hash(request);
+
+        Stored stored = cached(cacheKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        CompletableFuture<Stored> mine = new CompletableFuture<>();
+        CompletableFuture<Stored> running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            return replay(await(running), requestHash);
+        }
+
+        try {
+            // Pudo haber terminado otra ejecución entre la consulta al cache y el registro
+            stored = cached(cacheKey);
+            if (stored == null) {
+                stored = find(scope, key);
+            }
+            if (stored != null) {
+                remember(cacheKey, stored);
+                mine.complete(stored);
+                return replay(stored, requestHash);
+            }
+
+            ResponseEntity<Map<String, Object>> response = action.get();
+            stored = new Stored(response.getStatusCode().value(), serialize(response.getBody()), requestHash,
+                    System.currentTimeMillis() + ttl.toMillis());
+            remember(cacheKey, stored);
+            save(scope, key, stored);
+            mine.complete(stored);
+            return response;
+        } catch (RuntimeException | Error ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventario.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int purged = jdbcTemplate.update(PURGE);
+        synchronized (recent) {
+            recent.values().removeIf(Stored::expired);
+        }
+        if (purged > 0) {
+            log.debug("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private Stored cached(String cacheKey) {
+        synchronized (recent) {
+            Stored stored = recent.get(cacheKey);
+            if (stored != null && stored.expired()) {
+                recent.remove(cacheKey);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private void remember(String cacheKey, Stored stored) {
+        synchronized (recent) {
+            recent.put(cacheKey, stored);
+        }
+    }
+
+    private Stored find(String scope, String key) {
+        List<Stored> rows = jdbcTemplate.query(FIND, (rs, n) -> new Stored(
+                rs.getInt("status_code"),
+                rs.getBytes("response_body"),
+                rs.getBytes("request_hash"),
+                rs.getTimestamp("expires_at").getTime()), scope, key);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private void save(String scope, String key, Stored stored) {
+        try {
+            jdbcTemplate.update(INSERT, scope, key, stored.requestHash(), stored.status(), stored.body(),
+                    new Timestamp(stored.expiresAtMillis()));
+        } catch (RuntimeException ex) {
+            // La operación ya se confirmó: se responde igual y la clave queda sólo en memoria
+            log.warn("Could not persist idempotency key {} for {}", key, scope, ex);
+        }
+    }
+
+    private static Stored await(CompletableFuture<Stored> running) {
+        try {
+            return running.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted waiting for the original request.");
+        } catch (ExecutionException ex) {
+            // El duplicado recibe el mismo error que la ejecución original
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> replay(Stored stored, byte[] requestHash) {
+        if (!Arrays.equals(stored.requestHash(), requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used with a different request.");
+        }
+        try {
+            Map<String, Object> body = objectMapper.readValue(stored.body(), BODY_TYPE);
+            return ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true").body(body);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Stored idempotent response is not valid JSON", ex);
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not serialize response for idempotency", ex);
+        }
+    }
+
+    private byte[] hash(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(serialize(request));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package uy.edu.ucu.inventario.leaderboard;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import uy.edu.ucu.inventario.dto.Leaderboard;
+import uy.edu.ucu.inventario.dto.LeaderboardEntry;
+import uy.edu.ucu.inventario.entity.Product;
+import uy.edu.ucu.inventario.entity.Sale;
+import uy.edu.ucu.inventario.repository.ProductRepository;
+
+/**
+ * Top resellers and top products (by number of sales) for the current day, week and
+ * month, kept in memory with one {@link SpaceSaving} summary per window and kind, so
+ * memory stays bounded by the configured capacity whatever the number of resellers or
+ * products. Counts are approximate once a window has seen more distinct keys than that.
+ *
+ * Loaded at startup by streaming the sales of the current week and month, then fed with
+ * every new sale once its transaction commits. A window starts empty when its period
+ * rolls over (weeks start on Monday). Edits and deletes of sales are not subtracted:
+ * they are picked up at the next start. Assumes this is the only instance recording sales.
+ */
+@Component
+public class SalesLeaderboard {
+
+    /** Period a leaderboard covers, up to today. */
+    public enum Window {
+        DAY("day"),
+        WEEK("week"),
+        MONTH("month");
+
+        private final String param;
+
+        Window(String param) {
+            this.param = param;
+        }
+
+        public String param() {
+            return param;
+        }
+
+        LocalDate start(LocalDate day) {
+            return switch (this) {
+                case DAY -> day;
+                case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> day.withDayOfMonth(1);
+            };
+        }
+
+        public static Window parse(String value) {
+            if (value == null || value.isBlank()) {
+                return DAY;
+            }
+            for (Window window : values()) {
+                if (window.param.equalsIgnoreCase(value.trim())) {
+                    return window;
+                }
+            }
+            throw new IllegalArgumentException("window must be one of day, week or month.");
+        }
+    }
+
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 100;
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    private static final String LOAD_RESELLERS =
+            "SELECT date, reseller FROM sales WHERE date >= ? AND reseller IS NOT NULL";
+
+    private static final String LOAD_PRODUCTS =
+            "SELECT s.date, sp.product_id FROM sales s JOIN sale_products sp ON sp.sale_id = s.id WHERE s.date >= ?";
+
+    // Resumen de una ventana: se vacía cuando llega una venta (o una consulta) de un período posterior
+    private static final class Board {
+
+        private final Window window;
+        private final SpaceSaving<String> resellers;
+        private final SpaceSaving<Long> products;
+        private LocalDate start;
+
+        Board(Window window, int capacity, LocalDate today) {
+            this.window = window;
+            this.resellers = new SpaceSaving<>(capacity);
+            this.products = new SpaceSaving<>(capacity);
+            this.start = window.start(today);
+        }
+
+        boolean accepts(LocalDate day) {
+            LocalDate period = window.start(day);
+            if (period.isAfter(start)) {
+                start = period;
+                resellers.clear();
+                products.clear();
+            }
+            return period.equals(start);
+        }
+    }
+
+    private final Map<Window, Board> boards = new EnumMap<>(Window.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ProductRepository productRepository;
+    private final int capacity;
+
+    public SalesLeaderboard(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        ProductRepository productRepository,
+        @Value("${inventario.leaderboard.capacity:1000}") int capacity
+    ) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid leaderboard capacity: " + capacity);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.productRepository = productRepository;
+        this.capacity = capacity;
+    }
+
+    @PostConstruct
+    synchronized void load() {
+        LocalDate today = LocalDate.now();
+        for (Window window : Window.values()) {
+            boards.put(window, new Board(window, capacity, today));
+        }
+
+        // La semana puede haber empezado en el mes anterior
+        LocalDate from = Window.WEEK.start(today);
+        if (Window.MONTH.start(today).isBefore(from)) {
+            from = Window.MONTH.start(today);
+        }
+        Date since = Date.valueOf(from);
+
+        // Dentro de una transacción el driver usa un cursor: nunca tiene el mes entero en memoria
+        readOnlyTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement(LOAD_RESELLERS);
+                statement.setFetchSize(LOAD_FETCH_SIZE);
+                statement.setDate(1, since);
+                return statement;
+            }, rs -> {
+                addReseller(rs.getTimestamp(1).toLocalDateTime().toLocalDate(), rs.getString(2));
+            });
+            jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement(LOAD_PRODUCTS);
+                statement.setFetchSize(LOAD_FETCH_SIZE);
+                statement.setDate(1, since);
+                return statement;
+            }, rs -> {
+                addProduct(rs.getTimestamp(1).toLocalDateTime().toLocalDate(), rs.getLong(2));
+            });
+        });
+    }
+
+    /**
+     * Counts a new sale once the current transaction commits (right away without one),
+     * so a rolled back sale never shows up.
+     */
+    public void recordAfterCommit(Sale sale) {
+        LocalDateTime date = sale.getDate();
+        if (date == null) {
+            return;
+        }
+        LocalDate day = date.toLocalDate();
+        String reseller = sale.getReseller();
+        List<Long> productIds = new ArrayList<>();
+        if (sale.getProducts() != null) {
+            for (Product product : sale.getProducts()) {
+                productIds.add(product.getId());
+            }
+        }
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(day, reseller, productIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(day, reseller, productIds);
+            }
+        });
+    }
+
+    private synchronized void record(LocalDate day, String reseller, List<Long> productIds) {
+        addReseller(day, reseller);
+        for (Long productId : productIds) {
+            addProduct(day, productId);
+        }
+    }
+
+    private void addReseller(LocalDate day, String reseller) {
+        if (reseller == null || reseller.isBlank()) {
+            return;
+        }
+        for (Board board : boards.values()) {
+            if (board.accepts(day)) {
+                board.resellers.offer(reseller, 1);
+            }
+        }
+    }
+
+    private void addProduct(LocalDate day, Long productId) {
+        if (productId == null) {
+            return;
+        }
+        for (Board board : boards.values()) {
+            if (board.accepts(day)) {
+                board.products.offer(productId, 1);
+            }
+        }
+    }
+
+    /**
+     * @param limit positions per leaderboard, 10 by default and at most 100
+     */
+    public Leaderboard top(Window window, Integer limit) {
+        int size = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        LocalDate from;
+        List<SpaceSaving.Counter<String>> resellers;
+        List<SpaceSaving.Counter<Long>> products;
+        synchronized (this) {
+            Board board = boards.get(window);
+            // Si el período terminó sin ventas nuevas, el resumen todavía es del anterior
+            board.accepts(LocalDate.now());
+            from = board.start;
+            resellers = board.resellers.top(size);
+            products = board.products.top(size);
+        }
+
+        List<LeaderboardEntry> resellerEntries = new ArrayList<>(resellers.size());
+        for (SpaceSaving.Counter<String> counter : resellers) {
+            resellerEntries.add(new LeaderboardEntry(counter.key(), null, null, counter.count(), counter.error()));
+        }
+
+        // Los nombres se buscan fuera del lock, una sola consulta para todo el podio
+        Map<Long, String> names = new HashMap<>();
+        if (!products.isEmpty()) {
+            List<Long> ids = new ArrayList<>(products.size());
+            products.forEach(counter -> ids.add(counter.key()));
+            productRepository.findAllByIdIn(ids).forEach(p -> names.put(p.getId(), p.getName()));
+        }
+        List<LeaderboardEntry> productEntries = new ArrayList<>(products.size());
+        for (SpaceSaving.Counter<Long> counter : products) {
+            productEntries.add(new LeaderboardEntry(null, counter.key(), names.get(counter.key()),
+                    counter.count(), counter.error()));
+        }
+
+        return new Leaderboard(window.param(), from, resellerEntries, productEntries);
+    }
+}
@@ -0,0 +1,147 @@
+package uy.edu.ucu.inventario.leaderboard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving summary: approximate top-K over a stream of keys in at most
+ * {@code capacity} counters, however many distinct keys the stream has.
+ *
+ * When all counters are taken, a new key replaces the one with the smallest count and
+ * inherits that count as its error, so a count may overestimate the true one by at most
+ * its error, and every key seen more than total/capacity times is guaranteed to be kept.
+ * The counters live in a binary min-heap indexed by key: offers are O(log capacity).
+ *
+ * Not thread-safe.
+ */
+public final class SpaceSaving<K> {
+
+    /** A monitored key. Its true count lies between {@code count - error} and {@code count}. */
+    public record Counter<K>(K key, long count, long error) {}
+
+    private static final Comparator<Counter<?>> TOP_ORDER = Comparator
+            .comparingLong((Counter<?> c) -> c.count()).reversed()
+            .thenComparingLong(Counter::error);
+
+    private final int capacity;
+    private final Object[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<K, Integer> positions;
+    private int size;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.keys = new Object[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 4 / 3 + 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        positions.clear();
+        size = 0;
+    }
+
+    public void offer(K key, long weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive: " + weight);
+        }
+
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+            return;
+        }
+
+        if (size < capacity) {
+            place(size, key, weight, 0);
+            siftUp(size++);
+            return;
+        }
+
+        // Lleno: la clave nueva ocupa el contador mínimo (la raíz) y hereda su cuenta como error
+        long min = counts[0];
+        positions.remove(keys[0]);
+        place(0, key, min + weight, min);
+        siftDown(0);
+    }
+
+    /**
+     * @return the {@code k} keys with the highest counts, highest first
+     */
+    @SuppressWarnings("unchecked")
+    public List<Counter<K>> top(int k) {
+        List<Counter<K>> all = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            all.add(new Counter<>((K) keys[i], counts[i], errors[i]));
+        }
+        all.sort(TOP_ORDER);
+        return all.size() > k ? new ArrayList<>(all.subList(0, k)) : all;
+    }
+
+    private void place(int position, K key, long count, long error) {
+        keys[position] = key;
+        counts[position] = count;
+        errors[position] = error;
+        positions.put(key, position);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void swap(int a, int b) {
+        Object key = keys[a];
+        long count = counts[a];
+        long error = errors[a];
+        keys[a] = keys[b];
+        counts[a] = counts[b];
+        errors[a] = errors[b];
+        keys[b] = key;
+        counts[b] = count;
+        errors[b] = error;
+        positions.put((K) keys[a], a);
+        positions.put((K) keys[b], b);
+    }
+}
@@ -0,0 +1,16 @@
+package uy.edu.ucu.inventario.lock;
+
+/**
+ * Identifies the stock of one product in one deposit.
+ */
+public record StockKey(long productId, long depositId) {
+
+    // Mezcla ambos ids para repartir claves vecinas entre stripes distintos
+    int spread() {
+        long h = productId * 0x9E3779B97F4A7C15L + depositId;
+        h ^= (h >>> 33);
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= (h >>> 33);
+        return (int) h;
+    }
+}
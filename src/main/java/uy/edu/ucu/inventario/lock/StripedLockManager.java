@@ -0,0 +1,154 @@
+package uy.edu.ucu.inventario.lock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serializes stock movements that touch the same product/deposit pair while letting
+ * unrelated pairs run in parallel. Keys are hashed onto a fixed number of lock stripes;
+ * an operation on several keys takes their stripes in ascending order, so two transfers
+ * in opposite directions can never wait on each other.
+ *
+ * Each stripe counts acquisitions, how many of them had to wait and for how long.
+ */
+@Component
+public class StripedLockManager {
+
+    /** Contention counters of one stripe. */
+    public record StripeStats(int stripe, long acquisitions, long contended, long waitMillis, long maxWaitMillis) {}
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final LongAdder acquisitions = new LongAdder();
+        final LongAdder contended = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        volatile long maxWaitNanos;
+    }
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    public StripedLockManager(@Value("${inventario.stock.lock-stripes:256}") int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Lock stripe count must be positive.");
+        }
+        // Potencia de dos para indexar con una máscara
+        int size = Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new Stripe[Math.max(size, 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.mask = stripes.length - 1;
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    public int stripeOf(StockKey key) {
+        return key.spread() & mask;
+    }
+
+    /**
+     * Runs the action holding the stripes of every given key. Duplicate keys and keys
+     * sharing a stripe are locked once.
+     */
+    public <T> T withLocks(Collection<StockKey> keys, Supplier<T> action) {
+        int[] order = keys.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        return withStripes(order, action);
+    }
+
+    /**
+     * Runs the action holding every stripe, i.e. with no stock movement in progress.
+     * Keep the action short: all movements wait for it.
+     */
+    public <T> T withAllLocks(Supplier<T> action) {
+        int[] order = new int[stripes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        return withStripes(order, action);
+    }
+
+    private <T> T withStripes(int[] order, Supplier<T> action) {
+        int locked = 0;
+        try {
+            for (int index : order) {
+                acquire(stripes[index]);
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[order[i]].lock.unlock();
+            }
+        }
+    }
+
+    private static void acquire(Stripe stripe) {
+        stripe.acquisitions.increment();
+        if (stripe.lock.tryLock()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        stripe.lock.lock();
+        long waited = System.nanoTime() - start;
+
+        stripe.contended.increment();
+        stripe.waitNanos.add(waited);
+        if (waited > stripe.maxWaitNanos) {
+            stripe.maxWaitNanos = waited; // aproximado: sólo para diagnóstico
+        }
+    }
+
+    /**
+     * Stripes that have seen contention, most contended first.
+     */
+    public List<StripeStats> contendedStripes(int limit) {
+        List<StripeStats> result = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            StripeStats stats = statsOf(i);
+            if (stats.contended() > 0) {
+                result.add(stats);
+            }
+        }
+        result.sort(Comparator.comparingLong(StripeStats::contended).reversed()
+                .thenComparing(Comparator.comparingLong(StripeStats::waitMillis).reversed()));
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    public StripeStats statsOf(int index) {
+        Stripe stripe = stripes[index];
+        return new StripeStats(
+                index,
+                stripe.acquisitions.sum(),
+                stripe.contended.sum(),
+                stripe.waitNanos.sum() / 1_000_000,
+                stripe.maxWaitNanos / 1_000_000);
+    }
+
+    public long totalAcquisitions() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.acquisitions.sum();
+        }
+        return total;
+    }
+
+    public long totalContended() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.contended.sum();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,24 @@
+package uy.edu.ucu.inventario.pagination;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ * The next cursor is null when there are no more rows after this page.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    public static int clampSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
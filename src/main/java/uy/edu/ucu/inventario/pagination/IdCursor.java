@@ -0,0 +1,25 @@
+package uy.edu.ucu.inventario.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset token for listings ordered by id descending.
+ */
+public final class IdCursor {
+
+    private IdCursor() {}
+
+    public static String encode(long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long decode(String token) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package uy.edu.ucu.inventario.repository;
 
 import uy.edu.ucu.inventario.entity.Brand;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface BrandRepository extends JpaRepository<Brand, Long> {
+    // Resultado en la caché de consultas; la entidad sale de la caché de segundo nivel
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Brand> findByNameIgnoreCase(String name);
 }
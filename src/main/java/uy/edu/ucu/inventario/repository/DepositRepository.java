@@ -3,10 +3,14 @@ package uy.edu.ucu.inventario.repository;
 import uy.edu.ucu.inventario.entity.Deposit;
 
 import java.util.Optional;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface DepositRepository extends JpaRepository<Deposit, Long> {
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
 	Optional<Deposit> findByNameIgnoreCase(String name);
-}
\ No newline at end of file
+}
@@ -2,8 +2,13 @@ package uy.edu.ucu.inventario.repository;
 
 import uy.edu.ucu.inventario.entity.Product;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -16,4 +21,17 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     boolean existsByCategoryId(Long categoryId);
     
     Optional<Product> findByNameIgnoreCase(String name);
-}
\ No newline at end of file
+
+    // Listado y detalle: marca, categoría y depósitos en una sola consulta
+    @EntityGraph(Product.DETAILS_GRAPH)
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    List<Product> findAllWithDetails();
+
+    @EntityGraph(Product.DETAILS_GRAPH)
+    Optional<Product> findWithDetailsById(Long id);
+
+    // Igual que findAllById, pero la consulta JPQL queda en la caché de planes de Hibernate
+    // en vez de armarse y traducirse desde Criteria en cada llamada
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids")
+    List<Product> findAllByIdIn(@Param("ids") Collection<Long> ids);
+}
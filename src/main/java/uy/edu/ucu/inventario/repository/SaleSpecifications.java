@@ -0,0 +1,44 @@
+package uy.edu.ucu.inventario.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.Predicate;
+import uy.edu.ucu.inventario.dto.SaleFilter;
+import uy.edu.ucu.inventario.entity.Sale;
+
+/**
+ * Specifications used to build the filtered sales queries.
+ */
+public final class SaleSpecifications {
+
+    private SaleSpecifications() {}
+
+    public static Specification<Sale> matching(SaleFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (filter.from() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("date"), filter.from()));
+            }
+            if (filter.to() != null) {
+                predicates.add(cb.lessThan(root.get("date"), filter.to()));
+            }
+            if (filter.paymentMethod() != null) {
+                predicates.add(cb.equal(root.get("paymentMethod"), filter.paymentMethod()));
+            }
+            if (filter.reseller() != null && !filter.reseller().isBlank()) {
+                predicates.add(cb.equal(root.get("reseller"), filter.reseller().trim()));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // Keyset: solo ventas anteriores al cursor (orden por id descendente)
+    public static Specification<Sale> idBefore(Long id) {
+        return (root, query, cb) -> cb.lessThan(root.get("id"), id);
+    }
+}
@@ -1,24 +1,53 @@
 package uy.edu.ucu.inventario.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import uy.edu.ucu.inventario.dto.StockMovementView;
 import uy.edu.ucu.inventario.entity.StockMovement;
 import uy.edu.ucu.inventario.enums.MovementType;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
 
-    // Buscar movimientos por tipo (ENTRADA, SALIDA, TRANSFERENCIA)
-    List<StockMovement> findByType(MovementType type);
+    // === Lecturas proyectadas: una sola consulta con joins, sin hidratar entidades ===
 
-    // Buscar por depósito de origen
-    List<StockMovement> findByOriginDepositId(Long depositId);
+    String VIEW_SELECT = "SELECT new uy.edu.ucu.inventario.dto.StockMovementView(" +
+            "m.id, m.type, m.quantity, m.date, p.id, p.name, o.id, o.name, d.id, d.name, u.id, u.firstName) " +
+            "FROM StockMovement m JOIN m.product p " +
+            "LEFT JOIN m.originDeposit o LEFT JOIN m.destinationDeposit d LEFT JOIN m.user u ";
 
-    // Buscar por depósito de destino
-    List<StockMovement> findByDestinationDepositId(Long depositId);
+    // Paginación por keyset: id descendente, siempre "después" del cursor recibido.
+    // No se usa la fecha: StockMovement.onUpdate la pasa a hoy al editar, y un movimiento editado
+    // mientras un cliente pagina saltaría al principio (se perdería o se repetiría). El id no cambia.
+    String AFTER_CURSOR = "m.id < :id ";
+    String KEYSET_ORDER = "ORDER BY m.id DESC";
 
-    // Buscar transferencias entre dos depósitos específicos
-    List<StockMovement> findByOriginDepositIdAndDestinationDepositId(Long originId, Long destinationId);
-}
\ No newline at end of file
+    @Query(VIEW_SELECT + "WHERE m.id = :id")
+    Optional<StockMovementView> findViewById(@Param("id") Long id);
+
+    @Query(VIEW_SELECT + "WHERE " + AFTER_CURSOR + KEYSET_ORDER)
+    List<StockMovementView> findPage(@Param("id") Long id, Limit limit);
+
+    @Query(VIEW_SELECT + "WHERE m.type = :type AND " + AFTER_CURSOR + KEYSET_ORDER)
+    List<StockMovementView> findPageByType(@Param("type") MovementType type,
+                                           @Param("id") Long id, Limit limit);
+
+    @Query(VIEW_SELECT + "WHERE o.id = :depositId AND " + AFTER_CURSOR + KEYSET_ORDER)
+    List<StockMovementView> findPageByOriginDepositId(@Param("depositId") Long depositId,
+                                                      @Param("id") Long id, Limit limit);
+
+    @Query(VIEW_SELECT + "WHERE d.id = :depositId AND " + AFTER_CURSOR + KEYSET_ORDER)
+    List<StockMovementView> findPageByDestinationDepositId(@Param("depositId") Long depositId,
+                                                           @Param("id") Long id, Limit limit);
+
+    @Query(VIEW_SELECT + "WHERE o.id = :originId AND d.id = :destinationId AND " + AFTER_CURSOR + KEYSET_ORDER)
+    List<StockMovementView> findPageByOriginDepositIdAndDestinationDepositId(@Param("originId") Long originId,
+                                                                             @Param("destinationId") Long destinationId,
+                                                                             @Param("id") Long id, Limit limit);
+}
@@ -12,4 +12,4 @@ public interface StockRepository extends JpaRepository<Stock, Long> {
     boolean existsByProductIdAndDepositId(Long productId, Long depositId);
 
     Optional<Stock> findByProductIdAndDepositId(Long productId, Long depositId);
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package uy.edu.ucu.inventario.reservation;
+
+/**
+ * A quantity of one product in one deposit held for a checkout until it is confirmed,
+ * released or expires. The reservation is its own timer node in the expiry wheel.
+ */
+public final class Reservation extends TimingWheel.Node {
+
+    private final long id;
+    private final long productId;
+    private final long depositId;
+    private final int quantity;
+    private final Long userId;
+    private final long expiresAtMillis;
+
+    Reservation(long id, long productId, long depositId, int quantity, Long userId, long expiresAtMillis) {
+        this.id = id;
+        this.productId = productId;
+        this.depositId = depositId;
+        this.quantity = quantity;
+        this.userId = userId;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    public long getDepositId() {
+        return depositId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /** Wall-clock expiry, epoch millis. */
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+}
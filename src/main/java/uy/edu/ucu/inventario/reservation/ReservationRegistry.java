@@ -0,0 +1,200 @@
+package uy.edu.ucu.inventario.reservation;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import uy.edu.ucu.inventario.availability.LongIntHashMap;
+
+/**
+ * In-memory stock holds. Keeps the total held per (product, deposit) in a primitive map,
+ * and expires holds with a {@link TimingWheel} advanced by one ticker thread: no task per
+ * hold, and a hold allocates nothing beyond the reservation itself.
+ *
+ * Every stock write asks for the reserved quantity of its pairs, so {@link #reserved} is an
+ * optimistic {@link StampedLock} read that neither allocates nor waits on the registry
+ * monitor. A pair leaves the map when nothing is held on it.
+ *
+ * Checking availability before holding is up to the caller, under the pair's stock lock.
+ * Holds live only in this process and are lost on restart, which simply frees the stock.
+ */
+@Component
+public class ReservationRegistry {
+
+    /** Counters for the stats endpoint. */
+    public record Stats(int active, long created, long confirmed, long released, long expired) {}
+
+    private static final int WHEEL_LEVELS = 4;
+    private static final long MAX_ID = 0xFFFF_FFFFL;
+
+    private final Map<Long, Reservation> reservations = new HashMap<>();
+    // Escrito sólo con el monitor tomado; heldLock deja leerlo sin él
+    private final StampedLock heldLock = new StampedLock();
+    private final LongIntHashMap heldByKey = new LongIntHashMap(256);
+    private final TimingWheel<Reservation> wheel;
+    private final long tickNanos;
+    private final long startNanos;
+    private final ScheduledExecutorService ticker;
+
+    private long nextId = 1;
+    private long created;
+    private long confirmed;
+    private long released;
+    private long expired;
+
+    public ReservationRegistry(@Value("${inventario.reservation.tick:100ms}") Duration tick) {
+        if (tick.isNegative() || tick.isZero()) {
+            throw new IllegalArgumentException("Reservation tick must be positive.");
+        }
+        this.tickNanos = tick.toNanos();
+        this.startNanos = System.nanoTime();
+        this.wheel = new TimingWheel<>(WHEEL_LEVELS, 0);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        ticker.scheduleAtFixedRate(this::expireDue, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+    }
+
+    public synchronized Reservation hold(long productId, long depositId, int quantity, Long userId, Duration ttl) {
+        long ttlTicks = Math.max(1, (ttl.toNanos() + tickNanos - 1) / tickNanos);
+        Reservation reservation = new Reservation(nextId++, productId, depositId, quantity, userId,
+                System.currentTimeMillis() + ttl.toMillis());
+
+        add(reservation, currentTick() + ttlTicks);
+        created++;
+        return reservation;
+    }
+
+    public synchronized Optional<Reservation> find(long id) {
+        return Optional.ofNullable(reservations.get(id));
+    }
+
+    public int reserved(long productId, long depositId) {
+        if (productId <= 0 || productId > MAX_ID || depositId <= 0 || depositId > MAX_ID) {
+            return 0;
+        }
+        long key = (productId << 32) | depositId;
+
+        long stamp = heldLock.tryOptimisticRead();
+        int held = heldByKey.get(key, 0);
+        if (heldLock.validate(stamp)) {
+            return held;
+        }
+
+        stamp = heldLock.readLock();
+        try {
+            return heldByKey.get(key, 0);
+        } finally {
+            heldLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Removes the hold so it can be turned into a movement.
+     *
+     * @return the reservation, or null if it was already confirmed, released or expired
+     */
+    public synchronized Reservation take(long id) {
+        Reservation reservation = remove(id);
+        if (reservation != null) {
+            confirmed++;
+        }
+        return reservation;
+    }
+
+    /**
+     * Puts back a hold returned by {@link #take} whose movement could not be recorded.
+     * It keeps its original expiry.
+     */
+    public synchronized void restore(Reservation reservation) {
+        long remainingNanos = (reservation.getExpiresAtMillis() - System.currentTimeMillis()) * 1_000_000L;
+        add(reservation, currentTick() + Math.max(1, remainingNanos / tickNanos));
+        confirmed--;
+    }
+
+    public synchronized boolean release(long id) {
+        if (remove(id) == null) {
+            return false;
+        }
+        released++;
+        return true;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(reservations.size(), created, confirmed, released, expired);
+    }
+
+    // Corre en el hilo del ticker
+    synchronized void expireDue() {
+        wheel.advanceTo(currentTick(), reservation -> {
+            reservations.remove(reservation.getId());
+            unhold(reservation);
+            expired++;
+        });
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    private void add(Reservation reservation, long deadlineTick) {
+        long key = key(reservation);
+        reservations.put(reservation.getId(), reservation);
+        addHeld(key, reservation.getQuantity());
+        wheel.schedule(reservation, deadlineTick);
+    }
+
+    private Reservation remove(long id) {
+        Reservation reservation = reservations.remove(id);
+        if (reservation != null) {
+            wheel.cancel(reservation);
+            unhold(reservation);
+        }
+        return reservation;
+    }
+
+    private void unhold(Reservation reservation) {
+        addHeld(key(reservation), -reservation.getQuantity());
+    }
+
+    private void addHeld(long key, int delta) {
+        long stamp = heldLock.writeLock();
+        try {
+            if (heldByKey.addTo(key, delta) == 0) {
+                heldByKey.remove(key);
+            }
+        } finally {
+            heldLock.unlockWrite(stamp);
+        }
+    }
+
+    private static long key(Reservation reservation) {
+        long productId = reservation.getProductId();
+        long depositId = reservation.getDepositId();
+        if (productId <= 0 || productId > MAX_ID || depositId <= 0 || depositId > MAX_ID) {
+            throw new IllegalArgumentException("Stock ids out of range: " + productId + ", " + depositId);
+        }
+        return (productId << 32) | depositId;
+    }
+}
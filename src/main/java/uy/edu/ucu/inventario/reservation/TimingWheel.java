@@ -0,0 +1,154 @@
+package uy.edu.ucu.inventario.reservation;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (Varghese &amp; Lauck): {@code levels} wheels of 64 slots, each
+ * slot of level {@code l} spanning 64^l ticks. Scheduling and cancelling are O(1); a timer
+ * far in the future sits in a coarse slot and is cascaded down to finer levels as time
+ * approaches its deadline.
+ *
+ * Timers are intrusive: the scheduled object is itself the list node, so the wheel
+ * allocates nothing per timer. Not thread-safe; callers synchronize.
+ */
+public final class TimingWheel<T extends TimingWheel.Node> {
+
+    /** Base class of the objects kept in the wheel. */
+    public abstract static class Node {
+        Node prev;
+        Node next;
+        long deadline;
+
+        boolean isScheduled() {
+            return next != null;
+        }
+    }
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    // Centinela de cada lista circular
+    private static final class Head extends Node {
+        Head() {
+            prev = this;
+            next = this;
+        }
+    }
+
+    private final Head[][] wheels;
+    private final int levels;
+    private final long horizon;
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(int levels, long startTick) {
+        if (levels < 1 || levels * SLOT_BITS >= 63) {
+            throw new IllegalArgumentException("Unsupported number of wheel levels: " + levels);
+        }
+        this.levels = levels;
+        this.horizon = 1L << (levels * SLOT_BITS);
+        this.currentTick = startTick;
+        this.wheels = new Head[levels][SLOTS];
+        for (Head[] wheel : wheels) {
+            for (int i = 0; i < SLOTS; i++) {
+                wheel[i] = new Head();
+            }
+        }
+    }
+
+    public long currentTick() {
+        return currentTick;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules the node to expire at the given tick (at the next tick if that is already past).
+     */
+    public void schedule(T node, long deadlineTick) {
+        if (node.isScheduled()) {
+            unlink(node);
+        }
+        node.deadline = Math.max(deadlineTick, currentTick + 1);
+        place(node);
+        size++;
+    }
+
+    public boolean cancel(T node) {
+        if (!node.isScheduled()) {
+            return false;
+        }
+        unlink(node);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves time forward to the given tick, handing every expired node to the consumer.
+     */
+    @SuppressWarnings("unchecked")
+    public void advanceTo(long tick, Consumer<? super T> expired) {
+        while (currentTick < tick) {
+            currentTick++;
+
+            // Primero los niveles gruesos, para que lo que baja pueda seguir bajando en este tick
+            for (int level = levels - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+                    cascade(wheels[level][(int) (currentTick >>> (level * SLOT_BITS)) & SLOT_MASK]);
+                }
+            }
+
+            Head slot = wheels[0][(int) currentTick & SLOT_MASK];
+            Node node = slot.next;
+            while (node != slot) {
+                Node following = node.next;
+                unlink(node);
+                if (node.deadline > currentTick) {
+                    // Más allá del horizonte: sigue esperando en otra vuelta
+                    place(node);
+                } else {
+                    size--;
+                    expired.accept((T) node);
+                }
+                node = following;
+            }
+        }
+    }
+
+    private void cascade(Head slot) {
+        Node node = slot.next;
+        while (node != slot) {
+            Node following = node.next;
+            unlink(node);
+            place(node);
+            node = following;
+        }
+    }
+
+    // Nivel según lo que falta; un deadline más allá del horizonte espera en el nivel más alto
+    private void place(Node node) {
+        long target = Math.min(node.deadline, currentTick + horizon - 1);
+        long delta = target - currentTick;
+
+        int level = 0;
+        while (level < levels - 1 && delta >= (1L << ((level + 1) * SLOT_BITS))) {
+            level++;
+        }
+        Head head = wheels[level][(int) (target >>> (level * SLOT_BITS)) & SLOT_MASK];
+
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private static void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+}
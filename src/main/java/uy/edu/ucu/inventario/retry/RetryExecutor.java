@@ -0,0 +1,100 @@
+package uy.edu.ucu.inventario.retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.persistence.OptimisticLockException;
+
+/**
+ * Runs a service operation in its own transaction and re-runs it when the commit loses
+ * an optimistic-locking race, waiting a random ("full jitter") exponential backoff between
+ * attempts. Each attempt starts from a clean persistence context, so it re-reads the
+ * current versions. Once the attempt budget is spent the caller gets a 409.
+ *
+ * If a transaction is already active the operation just joins it and runs once: only the
+ * owner of the transaction can retry it.
+ */
+@Component
+public class RetryExecutor {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+
+    public RetryExecutor(
+        TransactionTemplate transactionTemplate,
+        @Value("${inventario.retry.max-attempts:10}") int maxAttempts,
+        @Value("${inventario.retry.base-delay:5ms}") Duration baseDelay,
+        @Value("${inventario.retry.max-delay:100ms}") Duration maxDelay
+    ) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Retry attempts must be at least 1.");
+        }
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayNanos = baseDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+    }
+
+    public <T> T run(Supplier<T> operation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return operation.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> operation.get());
+            } catch (RuntimeException ex) {
+                if (!isOptimisticLockFailure(ex)) {
+                    throw ex;
+                }
+                if (attempt >= maxAttempts) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "The record was modified concurrently, please try again.", ex);
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    public void run(Runnable operation) {
+        run(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    // Espera aleatoria en [0, min(max, base * 2^(intento-1))]
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxDelayNanos, baseDelayNanos << Math.min(attempt - 1, 30));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(delay / 1_000_000, (int) (delay % 1_000_000));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while retrying.", ex);
+        }
+    }
+
+    private static boolean isOptimisticLockFailure(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockingFailureException
+                    || t instanceof OptimisticLockException
+                    || t instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -19,11 +19,14 @@ public class BrandService {
     private final BrandRepository brandRepository;
     private final ProductRepository productRepository;
     private final AuditLogService auditLogService;
+    private final CounterService counterService;
 
-    public BrandService(BrandRepository brandRepository, ProductRepository productRepository, AuditLogService auditLogService) {
+    public BrandService(BrandRepository brandRepository, ProductRepository productRepository, AuditLogService auditLogService,
+                        CounterService counterService) {
         this.brandRepository = brandRepository;
         this.productRepository = productRepository;
         this.auditLogService = auditLogService;
+        this.counterService = counterService;
     }
 
     public List<Brand> listAll() {
@@ -83,12 +86,10 @@ public class BrandService {
     }
 
     public void incrementProductCount(Brand brand) {
-        brand.incrementAssociatedProductCount();
-        brandRepository.save(brand);
+        counterService.addToProductCount(brand, 1);
     }
 
     public void decrementProductCount(Brand brand) {
-        brand.decrementAssociatedProductCount();
-        brandRepository.save(brand);
+        counterService.addToProductCount(brand, -1);
     }
 }
@@ -0,0 +1,62 @@
+package uy.edu.ucu.inventario.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Reports hit/miss counters of the Hibernate second-level and query caches.
+ */
+@Service
+public class CacheStatsService {
+
+    private final Statistics statistics;
+
+    public CacheStatsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+            if (stats != null) {
+                regions.put(region, counters(stats.getHitCount(), stats.getMissCount(), stats.getPutCount()));
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("secondLevel", counters(
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getSecondLevelCachePutCount()));
+        result.put("queries", counters(
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount()));
+        result.put("regions", regions);
+        result.put("statementsPrepared", statistics.getPrepareStatementCount());
+        result.put("since", statistics.getStartTime());
+        return result;
+    }
+
+    public void reset() {
+        statistics.clear();
+    }
+
+    private static Map<String, Object> counters(long hits, long misses, long puts) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", hits);
+        map.put("misses", misses);
+        map.put("puts", puts);
+        long lookups = hits + misses;
+        map.put("hitRatio", lookups == 0 ? 0.0 : (double) hits / lookups);
+        return map;
+    }
+}
@@ -17,11 +17,14 @@ public class CategoryService {
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
     private final AuditLogService auditLogService;
+    private final CounterService counterService;
 
-    public CategoryService(CategoryRepository categoryRepository, ProductRepository productRepository, AuditLogService auditLogService) {
+    public CategoryService(CategoryRepository categoryRepository, ProductRepository productRepository, AuditLogService auditLogService,
+                           CounterService counterService) {
         this.categoryRepository = categoryRepository;
         this.productRepository = productRepository;
         this.auditLogService = auditLogService;
+        this.counterService = counterService;
     }
 
     public List<Category> listAll() {
@@ -81,12 +84,10 @@ public class CategoryService {
     }
 
     public void incrementProductCount(Category category) {
-        category.incrementAssociatedProductCount();
-        categoryRepository.save(category);
+        counterService.addToProductCount(category, 1);
     }
 
     public void decrementProductCount(Category category) {
-        category.decrementAssociatedProductCount();
-        categoryRepository.save(category);
+        counterService.addToProductCount(category, -1);
     }
 }
\ No newline at end of file
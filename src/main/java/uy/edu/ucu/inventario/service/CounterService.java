@@ -0,0 +1,154 @@
+package uy.edu.ucu.inventario.service;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import uy.edu.ucu.inventario.entity.Brand;
+import uy.edu.ucu.inventario.entity.Category;
+import uy.edu.ucu.inventario.entity.Deposit;
+import uy.edu.ucu.inventario.entity.Product;
+
+/**
+ * Maintains the denormalized counters (products per brand, category and deposit,
+ * deposits per product) with single-statement {@code UPDATE ... SET x = x + delta}
+ * calls instead of read-modify-write on the entity.
+ *
+ * Inside a transaction the deltas are accumulated per row and written just before
+ * commit, one statement per row; outside a transaction they are written right away.
+ * The entity passed in is adjusted as well so it keeps reflecting the database.
+ *
+ * The statements are plain SQL, outside Hibernate: a JPQL bulk update would empty the
+ * whole second-level cache region of the entity. Only the updated brands, categories
+ * and deposits are evicted, once the transaction commits.
+ */
+@Service
+public class CounterService {
+
+    private enum Counter {
+        PRODUCT_DEPOSITS("products", "deposits_count", null),
+        BRAND_PRODUCTS("brands", "associated_product_count", Brand.class),
+        CATEGORY_PRODUCTS("categories", "associated_product_count", Category.class),
+        DEPOSIT_PRODUCTS("deposits", "product_count", Deposit.class);
+
+        // Nunca por debajo de cero
+        private final String sql;
+        // Entidad en la caché de segundo nivel, o null si no se cachea
+        private final Class<?> cached;
+
+        Counter(String table, String column, Class<?> cached) {
+            this.sql = "UPDATE " + table + " SET " + column + " = GREATEST(" + column + " + ?, 0) WHERE id = ?";
+            this.cached = cached;
+        }
+    }
+
+    private record Key(Counter counter, Long id) {}
+
+    // Orden fijo de escritura: dos transacciones nunca bloquean las mismas filas en orden inverso
+    private static final Comparator<Key> WRITE_ORDER =
+            Comparator.comparing(Key::counter).thenComparing(Key::id);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache secondLevelCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CounterService(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.secondLevelCache = entityManagerFactory.getCache();
+    }
+
+    public void addToDepositsCount(Product product, int delta) {
+        product.setDepositsCount(clamp(product.getDepositsCount() + delta));
+        add(new Key(Counter.PRODUCT_DEPOSITS, product.getId()), delta);
+    }
+
+    public void addToProductCount(Brand brand, int delta) {
+        brand.setAssociatedProductCount(clamp(brand.getAssociatedProductCount() + delta));
+        add(new Key(Counter.BRAND_PRODUCTS, brand.getId()), delta);
+    }
+
+    public void addToProductCount(Category category, int delta) {
+        category.setAssociatedProductCount(clamp(category.getAssociatedProductCount() + delta));
+        add(new Key(Counter.CATEGORY_PRODUCTS, category.getId()), delta);
+    }
+
+    public void addToProductCount(Deposit deposit, int delta) {
+        deposit.setProductCount(clamp(deposit.getProductCount() + delta));
+        add(new Key(Counter.DEPOSIT_PRODUCTS, deposit.getId()), delta);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(value, 0);
+    }
+
+    private void add(Key key, int delta) {
+        if (key.id() == null || delta == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(key, delta);
+            evict(key);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<Key, Integer> pending = (Map<Key, Integer>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new TreeMap<>(WRITE_ORDER);
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new PendingDeltas(pending));
+        }
+        pending.merge(key, delta, Integer::sum);
+    }
+
+    private void write(Key key, int delta) {
+        jdbcTemplate.update(key.counter().sql, delta, key.id());
+    }
+
+    private void evict(Key key) {
+        if (key.counter().cached != null) {
+            secondLevelCache.evict(key.counter().cached, key.id());
+        }
+    }
+
+    // Escribe los deltas acumulados antes del commit y libera el mapa al terminar
+    private final class PendingDeltas implements TransactionSynchronization {
+
+        private final Map<Key, Integer> pending;
+
+        PendingDeltas(Map<Key, Integer> pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // El UPDATE va por JDBC: Hibernate no hace flush por su cuenta, y la fila puede ser nueva
+            entityManager.flush();
+            // Los deltas que se cancelan (+1 y -1 sobre la misma fila) no generan sentencia
+            pending.values().removeIf(delta -> delta == 0);
+            pending.forEach(CounterService.this::write);
+        }
+
+        @Override
+        public void afterCommit() {
+            pending.keySet().forEach(CounterService.this::evict);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CounterService.this);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package uy.edu.ucu.inventario.service;
 
+import uy.edu.ucu.inventario.alert.StockAlertEngine;
 import uy.edu.ucu.inventario.entity.Deposit;
 import uy.edu.ucu.inventario.repository.DepositRepository;
+import uy.edu.ucu.inventario.retry.RetryExecutor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -18,10 +20,17 @@ public class DepositService {
 
     private final DepositRepository depositRepository;
     private final AuditLogService auditLogService;
+    private final CounterService counterService;
+    private final RetryExecutor retryExecutor;
+    private final StockAlertEngine alertEngine;
 
-    public DepositService(DepositRepository depositRepository, AuditLogService auditLogService) {
+    public DepositService(DepositRepository depositRepository, AuditLogService auditLogService, CounterService counterService,
+                          RetryExecutor retryExecutor, StockAlertEngine alertEngine) {
         this.depositRepository = depositRepository;
         this.auditLogService = auditLogService;
+        this.counterService = counterService;
+        this.retryExecutor = retryExecutor;
+        this.alertEngine = alertEngine;
     }
 
     public List<Deposit> listAll() {
@@ -45,6 +54,10 @@ public class DepositService {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Deposit with name '" + deposit.getName() + "' already exists.");
         }
 
+        if (!isNew) {
+            return retryExecutor.run(() -> update(deposit));
+        }
+
         if (isNew) {
             deposit.setProductCount(0); // inicializa contador de productos
             deposit.setAssociatedDate(LocalDateTime.now()); // registra la fecha de creación
@@ -62,30 +75,49 @@ public class DepositService {
         return saved;
     }
 
-    public void delete(Long id) {
-        Deposit deposit = depositRepository.findById(id).orElseThrow(() ->
-            new ResponseStatusException(HttpStatus.NOT_FOUND, "Deposit with id " + id + " not found.")
+    // Copia los cambios sobre el depósito gestionado para que Hibernate controle la versión
+    private Deposit update(Deposit changes) {
+        Deposit deposit = depositRepository.findById(changes.getId()).orElseThrow(() ->
+            new ResponseStatusException(HttpStatus.NOT_FOUND, "Deposit with id " + changes.getId() + " not found.")
         );
 
-        depositRepository.deleteById(id);
+        deposit.setName(changes.getName());
+        deposit.setLocation(changes.getLocation());
+        deposit.setDescription(changes.getDescription());
 
         auditLogService.saveLog(
             "Deposit",
-            id,
-            "DELETE",
-            "Deleted deposit: " + deposit.getName()
+            deposit.getId(),
+            "UPDATE",
+            "Deposit name: " + deposit.getName()
         );
+
+        return deposit;
+    }
+
+    public void delete(Long id) {
+        retryExecutor.run(() -> {
+            Deposit deposit = depositRepository.findById(id).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Deposit with id " + id + " not found.")
+            );
+
+            depositRepository.delete(deposit);
+            alertEngine.forgetDepositAfterCommit(id);
+
+            auditLogService.saveLog(
+                "Deposit",
+                id,
+                "DELETE",
+                "Deleted deposit: " + deposit.getName()
+            );
+        });
     }
 
     public void incrementProductCount(Deposit deposit) {
-        deposit.setProductCount(deposit.getProductCount() + 1);
-        depositRepository.save(deposit);
+        counterService.addToProductCount(deposit, 1);
     }
 
     public void decrementProductCount(Deposit deposit) {
-        if (deposit.getProductCount() > 0) {
-            deposit.setProductCount(deposit.getProductCount() - 1);
-            depositRepository.save(deposit);
-        }
+        counterService.addToProductCount(deposit, -1);
     }
 }
\ No newline at end of file
@@ -10,11 +10,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import uy.edu.ucu.inventario.alert.StockAlertEngine;
 import uy.edu.ucu.inventario.entity.Brand;
 import uy.edu.ucu.inventario.entity.Category;
 import uy.edu.ucu.inventario.entity.Deposit;
 import uy.edu.ucu.inventario.entity.Product;
 import uy.edu.ucu.inventario.repository.ProductRepository;
+import uy.edu.ucu.inventario.retry.RetryExecutor;
 
 /**
  * Service for managing products.
@@ -28,29 +30,45 @@ public class ProductService {
     private final BrandService brandService;
     private final CategoryService categoryService;
     private final DepositService depositService;
+    private final CounterService counterService;
+    private final RetryExecutor retryExecutor;
+    private final StockAlertEngine alertEngine;
 
     public ProductService(
         ProductRepository productRepository,
         AuditLogService auditLogService,
         BrandService brandService,
         CategoryService categoryService,
-        DepositService depositService
+        DepositService depositService,
+        CounterService counterService,
+        RetryExecutor retryExecutor,
+        StockAlertEngine alertEngine
     ) {
         this.productRepository = productRepository;
         this.auditLogService = auditLogService;
         this.brandService = brandService;
         this.categoryService = categoryService;
         this.depositService = depositService;
+        this.counterService = counterService;
+        this.retryExecutor = retryExecutor;
+        this.alertEngine = alertEngine;
     }
 
     public List<Product> listAll() {
-        return productRepository.findAll();
+        return productRepository.findAllWithDetails();
     }
 
     public Optional<Product> getById(Long id) {
         return productRepository.findById(id);
     }
 
+    /**
+     * Loads the product together with its brand, category and deposits.
+     */
+    public Optional<Product> getDetailsById(Long id) {
+        return productRepository.findWithDetailsById(id);
+    }
+
     public Product save(Product product) {
         boolean isNew = (product.getId() == null);
 
@@ -71,6 +89,10 @@ public class ProductService {
         if (isNew && productRepository.findByNameIgnoreCase(product.getName()).isPresent()) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Product with name '" + product.getName() + "' already exists.");
         }
+
+        if (!isNew) {
+            return retryExecutor.run(() -> update(product));
+        }
      // Lógica para manejar los depósitos al crear el producto
         if (isNew && product.getDeposits() != null && !product.getDeposits().isEmpty()) {
 
@@ -112,38 +134,86 @@ public class ProductService {
        }
     
 
-    public void delete(Long id) {
-        Product product = productRepository.findById(id).orElseThrow(() ->
-            new ResponseStatusException(HttpStatus.NOT_FOUND, "Product with id " + id + " not found.")
+    /**
+     * Applies the request's fields to the managed product, so Hibernate checks its version
+     * on flush. Runs inside a RetryExecutor attempt.
+     */
+    private Product update(Product changes) {
+        Product product = productRepository.findById(changes.getId()).orElseThrow(() ->
+            new ResponseStatusException(HttpStatus.NOT_FOUND, "Product with id " + changes.getId() + " not found.")
         );
 
-        try {
-            productRepository.deleteById(id);
+        Brand brand = brandService.getById(changes.getBrand().getId()).orElseThrow(() ->
+            new ResponseStatusException(HttpStatus.BAD_REQUEST, "Brand not found."));
+        Category category = categoryService.getById(changes.getCategory().getId()).orElseThrow(() ->
+            new ResponseStatusException(HttpStatus.BAD_REQUEST, "Category not found."));
 
+        // Si cambia la marca o la categoría, se mueven los contadores
+        if (!brand.getId().equals(product.getBrand().getId())) {
             brandService.decrementProductCount(product.getBrand());
+            brandService.incrementProductCount(brand);
+        }
+        if (!category.getId().equals(product.getCategory().getId())) {
             categoryService.decrementProductCount(product.getCategory());
+            categoryService.incrementProductCount(category);
+        }
 
-            auditLogService.saveLog(
-                "Product",
-                id,
-                "DELETE",
-                "Product deleted: " + product.getName()
-            );
+        Set<Deposit> deposits = new HashSet<>();
+        if (changes.getDeposits() != null) {
+            for (Deposit depositFromRequest : changes.getDeposits()) {
+                depositService.getById(depositFromRequest.getId()).ifPresent(deposits::add);
+            }
+        }
+
+        product.setName(changes.getName());
+        product.setDescription(changes.getDescription());
+        product.setPurchasePrice(changes.getPurchasePrice());
+        product.setSalePrice(changes.getSalePrice());
+        product.setBrand(brand);
+        product.setCategory(category);
+        product.setDeposits(deposits);
+
+        auditLogService.saveLog(
+            "Product",
+            product.getId(),
+            "UPDATE",
+            "Product name: " + product.getName()
+        );
+
+        return product;
+    }
+
+    public void delete(Long id) {
+        try {
+            retryExecutor.run(() -> {
+                Product product = productRepository.findById(id).orElseThrow(() ->
+                    new ResponseStatusException(HttpStatus.NOT_FOUND, "Product with id " + id + " not found.")
+                );
+
+                productRepository.delete(product);
+                // Sus umbrales se borran en cascada; el motor de alertas los suelta al confirmar
+                alertEngine.forgetProductAfterCommit(id);
+
+                brandService.decrementProductCount(product.getBrand());
+                categoryService.decrementProductCount(product.getCategory());
+
+                auditLogService.saveLog(
+                    "Product",
+                    id,
+                    "DELETE",
+                    "Product deleted: " + product.getName()
+                );
+            });
         } catch (DataIntegrityViolationException ex) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Cannot delete product due to related records.");
         }
     }
 
     public void incrementDepositsCount(Product product) {
-        product.setDepositsCount(product.getDepositsCount() + 1);
-        productRepository.save(product);
+        counterService.addToDepositsCount(product, 1);
     }
 
     public void decrementDepositsCount(Product product) {
-        int current = product.getDepositsCount();
-        if (current > 0) {
-            product.setDepositsCount(current - 1);
-            productRepository.save(product);
-        }
+        counterService.addToDepositsCount(product, -1);
     }
 }
\ No newline at end of file
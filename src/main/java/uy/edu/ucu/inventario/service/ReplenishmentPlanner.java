@@ -0,0 +1,300 @@
+package uy.edu.ucu.inventario.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import uy.edu.ucu.inventario.availability.StockAvailabilityIndex;
+import uy.edu.ucu.inventario.dto.ReplenishmentRun;
+import uy.edu.ucu.inventario.dto.ReplenishmentSuggestion;
+
+/**
+ * Suggests reorder quantities per product and deposit from recent EXIT velocity.
+ *
+ * Exits are kept aggregated per deposit, product and day in {@code replenishment_demand}.
+ * A run re-aggregates only the days since the previous run started and drops the days
+ * that left the window; a full run rebuilds the window. Each deposit is then planned
+ * on its own, in parallel: its daily demand is streamed in product order to get the
+ * moving average over the window, compared with the current quantity from the
+ * availability index, and its suggestions are replaced in one transaction.
+ *
+ * Edits and deletes of movements older than the previous run are picked up by the next
+ * full run, which the scheduled job does not do by itself.
+ */
+@Service
+public class ReplenishmentPlanner {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplenishmentPlanner.class);
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1_000;
+    private static final int DEMAND_FETCH_SIZE = 5_000;
+    private static final BigDecimal MAX_COVER = new BigDecimal("99999999999.9");
+
+    private static final String LAST_FINISHED =
+            "SELECT started_at FROM replenishment_runs WHERE finished_at IS NOT NULL ORDER BY started_at DESC LIMIT 1";
+
+    private static final String INSERT_RUN =
+            "INSERT INTO replenishment_runs (started_at, from_day, full_rebuild) VALUES (now(), ?, ?) RETURNING id";
+
+    private static final String FINISH_RUN =
+            "UPDATE replenishment_runs SET finished_at = clock_timestamp(), deposits = ?, suggestions = ? WHERE id = ?";
+
+    private static final String DEPOSITS = "SELECT id FROM deposits ORDER BY id";
+
+    private static final String CLEAR_DEMAND = "DELETE FROM replenishment_demand WHERE deposit_id = ?";
+
+    // Los días que se vuelven a agregar y los que ya salieron de la ventana
+    private static final String DROP_DEMAND =
+            "DELETE FROM replenishment_demand WHERE deposit_id = ? AND (day >= ? OR day < ?)";
+
+    private static final String AGGREGATE_DEMAND =
+            "INSERT INTO replenishment_demand (deposit_id, product_id, day, quantity) " +
+            "SELECT origin_deposit_id, product_id, date, sum(quantity) FROM stock_movements " +
+            "WHERE origin_deposit_id = ? AND type = 'EXIT' AND date >= ? " +
+            "GROUP BY origin_deposit_id, product_id, date";
+
+    private static final String WINDOW_DEMAND =
+            "SELECT product_id, quantity FROM replenishment_demand WHERE deposit_id = ? AND day >= ? " +
+            "ORDER BY product_id";
+
+    private static final String CLEAR_SUGGESTIONS = "DELETE FROM replenishment_suggestions WHERE deposit_id = ?";
+
+    private static final String INSERT_SUGGESTION =
+            "INSERT INTO replenishment_suggestions (deposit_id, product_id, run_id, avg_daily_demand, quantity, " +
+            "days_of_cover, suggested_quantity) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SUGGESTION_COLUMNS =
+            "SELECT deposit_id, product_id, avg_daily_demand, quantity, days_of_cover, suggested_quantity " +
+            "FROM replenishment_suggestions WHERE suggested_quantity > 0 ";
+
+    private static final String LIST_SUGGESTIONS =
+            SUGGESTION_COLUMNS + "ORDER BY days_of_cover, deposit_id, product_id LIMIT ?";
+
+    private static final String LIST_DEPOSIT_SUGGESTIONS =
+            SUGGESTION_COLUMNS + "AND deposit_id = ? ORDER BY days_of_cover, product_id LIMIT ?";
+
+    private static final String RUN_COLUMNS =
+            "SELECT id, started_at, finished_at, from_day, full_rebuild, deposits, suggestions FROM replenishment_runs ";
+
+    private static final String FIND_RUN = RUN_COLUMNS + "WHERE id = ?";
+
+    private static final String LIST_RUNS = RUN_COLUMNS + "ORDER BY id DESC LIMIT 20";
+
+    private static final RowMapper<ReplenishmentSuggestion> SUGGESTION_MAPPER = (rs, row) -> new ReplenishmentSuggestion(
+            rs.getLong("deposit_id"),
+            rs.getLong("product_id"),
+            rs.getBigDecimal("avg_daily_demand"),
+            rs.getInt("quantity"),
+            rs.getBigDecimal("days_of_cover"),
+            rs.getInt("suggested_quantity"));
+
+    private static final RowMapper<ReplenishmentRun> RUN_MAPPER = (rs, row) -> {
+        Timestamp finishedAt = rs.getTimestamp("finished_at");
+        return new ReplenishmentRun(
+                rs.getLong("id"),
+                rs.getTimestamp("started_at").toInstant(),
+                finishedAt != null ? finishedAt.toInstant() : null,
+                rs.getDate("from_day").toLocalDate(),
+                rs.getBoolean("full_rebuild"),
+                rs.getInt("deposits"),
+                rs.getInt("suggestions"));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StockAvailabilityIndex availabilityIndex;
+    private final int windowDays;
+    private final int leadTimeDays;
+    private final int targetCoverDays;
+    private final int parallelism;
+
+    public ReplenishmentPlanner(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        StockAvailabilityIndex availabilityIndex,
+        @Value("${inventario.replenishment.window-days:28}") int windowDays,
+        @Value("${inventario.replenishment.lead-time-days:7}") int leadTimeDays,
+        @Value("${inventario.replenishment.target-cover-days:14}") int targetCoverDays,
+        @Value("${inventario.replenishment.parallelism:4}") int parallelism
+    ) {
+        if (windowDays <= 0 || leadTimeDays < 0 || targetCoverDays < 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid replenishment planner settings.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.availabilityIndex = availabilityIndex;
+        this.windowDays = windowDays;
+        this.leadTimeDays = leadTimeDays;
+        this.targetCoverDays = targetCoverDays;
+        this.parallelism = parallelism;
+    }
+
+    @Scheduled(cron = "${inventario.replenishment.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        run(false);
+    }
+
+    /**
+     * Updates the demand aggregates and recomputes every deposit's suggestions.
+     *
+     * @param full re-aggregate the whole window instead of the days since the last run
+     */
+    public synchronized ReplenishmentRun run(boolean full) {
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        LocalDate windowStart = today.minusDays(windowDays - 1L);
+
+        // Los movimientos llevan la fecha del servidor: se reagrega desde el día en que arrancó la anterior
+        LocalDate lastRunDay = full ? null : jdbcTemplate.query(LAST_FINISHED, rs -> rs.next()
+                ? rs.getTimestamp(1).toInstant().atZone(ZoneId.systemDefault()).toLocalDate()
+                : null);
+        boolean rebuild = lastRunDay == null || lastRunDay.isBefore(windowStart);
+        LocalDate from = rebuild ? windowStart : lastRunDay;
+
+        long runId = jdbcTemplate.queryForObject(INSERT_RUN, Long.class, Date.valueOf(from), rebuild);
+        List<Long> depositIds = jdbcTemplate.queryForList(DEPOSITS, Long.class);
+
+        List<Callable<Integer>> tasks = new ArrayList<>(depositIds.size());
+        for (Long depositId : depositIds) {
+            tasks.add(() -> planDeposit(runId, depositId, from, windowStart, rebuild));
+        }
+
+        int suggestions = 0;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<Integer> result : pool.invokeAll(tasks)) {
+                suggestions += result.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Replenishment run " + runId + " was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Replenishment run " + runId + " failed", ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        jdbcTemplate.update(FINISH_RUN, depositIds.size(), suggestions, runId);
+        log.info("Replenishment run {} planned {} deposits from {} ({} suggestions) in {} ms",
+                runId, depositIds.size(), from, suggestions, (System.nanoTime() - start) / 1_000_000);
+
+        return jdbcTemplate.queryForObject(FIND_RUN, RUN_MAPPER, runId);
+    }
+
+    public List<ReplenishmentRun> listRuns() {
+        return jdbcTemplate.query(LIST_RUNS, RUN_MAPPER);
+    }
+
+    /**
+     * Suggestions with something to order, least days of cover first.
+     */
+    public List<ReplenishmentSuggestion> listSuggestions(Long depositId, Integer limit) {
+        int size = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        return depositId == null
+                ? jdbcTemplate.query(LIST_SUGGESTIONS, SUGGESTION_MAPPER, size)
+                : jdbcTemplate.query(LIST_DEPOSIT_SUGGESTIONS, SUGGESTION_MAPPER, depositId, size);
+    }
+
+    // Un depósito por tarea y por transacción: agrega sus días nuevos y reemplaza sus sugerencias
+    private int planDeposit(long runId, long depositId, LocalDate from, LocalDate windowStart, boolean rebuild) {
+        return transactionTemplate.execute(status -> {
+            if (rebuild) {
+                jdbcTemplate.update(CLEAR_DEMAND, depositId);
+            } else {
+                jdbcTemplate.update(DROP_DEMAND, depositId, Date.valueOf(from), Date.valueOf(windowStart));
+            }
+            jdbcTemplate.update(AGGREGATE_DEMAND, depositId, Date.valueOf(from));
+
+            DemandWindow demand = new DemandWindow(runId, depositId);
+            // Con fetchSize el driver trae las filas por tandas en lugar de materializar todo el depósito
+            jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement(WINDOW_DEMAND);
+                statement.setFetchSize(DEMAND_FETCH_SIZE);
+                statement.setLong(1, depositId);
+                statement.setDate(2, Date.valueOf(windowStart));
+                return statement;
+            }, demand);
+            demand.finish();
+
+            jdbcTemplate.update(CLEAR_SUGGESTIONS, depositId);
+            jdbcTemplate.batchUpdate(INSERT_SUGGESTION, demand.rows);
+            return demand.rows.size();
+        });
+    }
+
+    /**
+     * Sums the daily demand of each product as the rows stream by (they arrive ordered by
+     * product) and turns every finished product into a suggestion row.
+     */
+    private final class DemandWindow implements RowCallbackHandler {
+
+        private final long runId;
+        private final long depositId;
+        private final List<Object[]> rows = new ArrayList<>();
+        private long productId;
+        private long total;
+
+        DemandWindow(long runId, long depositId) {
+            this.runId = runId;
+            this.depositId = depositId;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long product = rs.getLong(1);
+            if (product != productId) {
+                finish();
+                productId = product;
+            }
+            total += rs.getInt(2);
+        }
+
+        void finish() {
+            if (productId != 0 && total > 0) {
+                rows.add(suggestion(productId, total));
+            }
+            total = 0;
+        }
+
+        private Object[] suggestion(long product, long exits) {
+            double averageDaily = (double) exits / windowDays;
+            int quantity = availabilityIndex.quantity(product, depositId);
+            long target = (long) Math.ceil(averageDaily * (leadTimeDays + targetCoverDays));
+            int suggested = (int) Math.min(Integer.MAX_VALUE, Math.max(0, target - quantity));
+            BigDecimal cover = BigDecimal.valueOf(quantity / averageDaily).setScale(1, RoundingMode.HALF_UP).min(MAX_COVER);
+
+            return new Object[] {
+                depositId, product, runId,
+                BigDecimal.valueOf(averageDaily).setScale(3, RoundingMode.HALF_UP),
+                quantity, cover, suggested
+            };
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package uy.edu.ucu.inventario.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import uy.edu.ucu.inventario.availability.StockAvailabilityIndex;
+import uy.edu.ucu.inventario.dto.ReservationRequest;
+import uy.edu.ucu.inventario.dto.StockAvailability;
+import uy.edu.ucu.inventario.entity.Deposit;
+import uy.edu.ucu.inventario.entity.Product;
+import uy.edu.ucu.inventario.entity.StockMovement;
+import uy.edu.ucu.inventario.entity.User;
+import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.lock.StockKey;
+import uy.edu.ucu.inventario.lock.StripedLockManager;
+import uy.edu.ucu.inventario.reservation.Reservation;
+import uy.edu.ucu.inventario.reservation.ReservationRegistry;
+
+/**
+ * Holds stock between cart and payment. A hold is granted only if the quantity minus the
+ * existing holds covers it, and confirming it records an EXIT movement for the held units.
+ * Both run under the pair's stock lock, like any other movement on it.
+ */
+@Service
+public class ReservationService {
+
+    private final ReservationRegistry registry;
+    private final StockAvailabilityIndex availabilityIndex;
+    private final StockMovementService stockMovementService;
+    private final StripedLockManager stockLocks;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+
+    public ReservationService(
+        ReservationRegistry registry,
+        StockAvailabilityIndex availabilityIndex,
+        StockMovementService stockMovementService,
+        StripedLockManager stockLocks,
+        @Value("${inventario.reservation.default-ttl:15m}") Duration defaultTtl,
+        @Value("${inventario.reservation.max-ttl:24h}") Duration maxTtl
+    ) {
+        this.registry = registry;
+        this.availabilityIndex = availabilityIndex;
+        this.stockMovementService = stockMovementService;
+        this.stockLocks = stockLocks;
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+    }
+
+    public Reservation reserve(ReservationRequest request) {
+        if (request.productId() == null || request.depositId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product and deposit are required.");
+        }
+        if (request.quantity() == null || request.quantity() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be greater than zero.");
+        }
+        Duration ttl = request.ttlSeconds() != null ? Duration.ofSeconds(request.ttlSeconds()) : defaultTtl;
+        if (ttl.isNegative() || ttl.isZero() || ttl.compareTo(maxTtl) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Reservation TTL must be between 1 and " + maxTtl.toSeconds() + " seconds.");
+        }
+
+        StockKey key = new StockKey(request.productId(), request.depositId());
+        return stockLocks.withLocks(List.of(key), () -> {
+            StockAvailability availability = availability(request.productId(), request.depositId());
+            if (availability.available() < request.quantity()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Only " + availability.available() + " units of product " + request.productId()
+                                + " are available in deposit " + request.depositId() + ".");
+            }
+            return registry.hold(request.productId(), request.depositId(), request.quantity(),
+                    request.userId(), ttl);
+        });
+    }
+
+    public Optional<Reservation> getById(long id) {
+        return registry.find(id);
+    }
+
+    /**
+     * Turns the hold into an EXIT movement. If the movement is rejected the hold is put back.
+     */
+    public StockMovement confirm(long id) {
+        Reservation reservation = registry.find(id).orElseThrow(ReservationService::notFound);
+
+        StockKey key = new StockKey(reservation.getProductId(), reservation.getDepositId());
+        return stockLocks.withLocks(List.of(key), () -> {
+            // Pudo vencer o confirmarse mientras se esperaba el lock
+            Reservation held = registry.take(id);
+            if (held == null) {
+                throw notFound();
+            }
+            try {
+                return stockMovementService.save(exitMovement(held));
+            } catch (RuntimeException ex) {
+                registry.restore(held);
+                throw ex;
+            }
+        });
+    }
+
+    public boolean release(long id) {
+        return registry.release(id);
+    }
+
+    public StockAvailability availability(long productId, long depositId) {
+        int quantity = availabilityIndex.quantity(productId, depositId);
+        int reserved = registry.reserved(productId, depositId);
+        return new StockAvailability(productId, depositId, quantity, reserved, Math.max(quantity - reserved, 0));
+    }
+
+    public ReservationRegistry.Stats stats() {
+        return registry.stats();
+    }
+
+    private static StockMovement exitMovement(Reservation reservation) {
+        Product product = new Product();
+        product.setId(reservation.getProductId());
+        Deposit deposit = new Deposit();
+        deposit.setId(reservation.getDepositId());
+
+        StockMovement movement = new StockMovement(MovementType.EXIT, product, deposit, null, reservation.getQuantity());
+        if (reservation.getUserId() != null) {
+            User user = new User();
+            user.setId(reservation.getUserId());
+            movement.setUser(user);
+        }
+        return movement;
+    }
+
+    private static ResponseStatusException notFound() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Reservation not found or already expired.");
+    }
+}
@@ -0,0 +1,47 @@
+package uy.edu.ucu.inventario.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import uy.edu.ucu.inventario.dto.SaleFilter;
+
+/**
+ * Short-lived cache of sales counts per filter, so the listing does not run
+ * a count(*) on every dashboard refresh. Entries expire after a TTL and are not
+ * dropped on writes: with the checkout volume the cache would be empty on almost
+ * every refresh, so the total may lag new sales by up to the TTL.
+ */
+@Component
+public class SaleCountCache {
+
+    private static final int MAX_ENTRIES = 256;
+
+    private record Entry(long count, long expiresAt) {}
+
+    private final Map<SaleFilter, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+
+    public SaleCountCache(@Value("${inventario.sales.count-cache-ttl:30s}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public long get(SaleFilter filter, Supplier<Long> counter) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(filter);
+        if (entry != null && entry.expiresAt() - now > 0) {
+            return entry.count();
+        }
+
+        long count = counter.get();
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(filter, new Entry(count, now + ttlNanos));
+        return count;
+    }
+}
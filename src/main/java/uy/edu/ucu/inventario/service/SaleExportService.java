@@ -0,0 +1,270 @@
+package uy.edu.ucu.inventario.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import uy.edu.ucu.inventario.dto.SaleFilter;
+
+/**
+ * Writes the sales matching a filter as CSV or NDJSON (one JSON object per line), in id
+ * order, straight from the database to the output.
+ *
+ * The rows come from a forward-only cursor inside a read-only transaction and are
+ * written as they are read, so memory use does not depend on how many sales are exported.
+ */
+@Service
+public class SaleExportService {
+
+    /** Output format of the export. */
+    public enum Format {
+        CSV("csv", "text/csv"),
+        NDJSON("ndjson", "application/x-ndjson");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) {
+                return CSV;
+            }
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value.trim())) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("format must be csv or ndjson.");
+        }
+    }
+
+    // Filas chicas: con 2000 por viaje un millón de ventas son 500 idas y vueltas
+    private static final int EXPORT_FETCH_SIZE = 2_000;
+
+    private static final String CSV_HEADER = "id,date,total,paymentMethod,reseller,productIds\n";
+
+    private static final String EXPORT_COLUMNS =
+            "SELECT s.id, s.date, s.total, s.payment_method, s.reseller, " +
+            "ARRAY(SELECT sp.product_id FROM sale_products sp WHERE sp.sale_id = s.id ORDER BY sp.product_id) " +
+            "FROM sales s";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public SaleExportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes every sale matching the filter to the output, which is flushed but not closed.
+     *
+     * @return the number of sales written
+     */
+    public long export(SaleFilter filter, Format format, OutputStream output) throws IOException {
+        StringBuilder sql = new StringBuilder(EXPORT_COLUMNS).append(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (filter.from() != null) {
+            sql.append(" AND s.date >= ?");
+            args.add(Timestamp.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND s.date < ?");
+            args.add(Timestamp.valueOf(filter.to()));
+        }
+        if (filter.paymentMethod() != null) {
+            sql.append(" AND s.payment_method = ?");
+            args.add(filter.paymentMethod().name());
+        }
+        if (filter.reseller() != null && !filter.reseller().isBlank()) {
+            sql.append(" AND s.reseller = ?");
+            args.add(filter.reseller().trim());
+        }
+        sql.append(" ORDER BY s.id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rows = format == Format.CSV ? new CsvRows(writer) : new JsonRows(objectMapper.getFactory().createGenerator(writer));
+
+        long written;
+        try {
+            written = query(sql.toString(), args, rows);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        rows.finish();
+        return written;
+    }
+
+    // Sin transacción el driver trae todo el resultado de una vez; dentro de una usa un cursor
+    private long query(String sql, List<Object> args, RowWriter rows) {
+        return readOnlyTransaction.execute(status -> jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, rs -> {
+            long count = 0;
+            try {
+                while (rs.next()) {
+                    rows.write(rs);
+                    count++;
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return count;
+        }));
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static long[] productIds(ResultSet rs) throws SQLException {
+        Array array = rs.getArray(6);
+        Long[] ids = (Long[]) array.getArray();
+        array.free();
+        long[] result = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = ids[i];
+        }
+        return result;
+    }
+
+    private static final class CsvRows implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRows(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(CSV_HEADER);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(Long.toString(rs.getLong(1)));
+            writer.write(',');
+            Timestamp date = rs.getTimestamp(2);
+            if (date != null) {
+                writer.write(date.toLocalDateTime().toString());
+            }
+            writer.write(',');
+            BigDecimal total = rs.getBigDecimal(3);
+            if (total != null) {
+                writer.write(total.toPlainString());
+            }
+            writer.write(',');
+            writer.write(rs.getString(4));
+            writer.write(',');
+            String reseller = rs.getString(5);
+            if (reseller != null) {
+                writeQuoted(reseller);
+            }
+            writer.write(',');
+            // Los ids van separados por espacio para no chocar con el separador de columnas
+            long[] ids = productIds(rs);
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) {
+                    writer.write(' ');
+                }
+                writer.write(Long.toString(ids[i]));
+            }
+            writer.write('\n');
+        }
+
+        // RFC 4180: entre comillas si hace falta, duplicando las comillas internas
+        private void writeQuoted(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class JsonRows implements RowWriter {
+
+        private final JsonGenerator json;
+
+        JsonRows(JsonGenerator json) {
+            this.json = json;
+            // Una línea por venta: el salto lo escribe cada fila, sin el espacio que Jackson pone entre valores raíz
+            this.json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong(1));
+            Timestamp date = rs.getTimestamp(2);
+            json.writeStringField("date", date != null ? date.toLocalDateTime().toString() : null);
+            BigDecimal total = rs.getBigDecimal(3);
+            if (total != null) {
+                json.writeNumberField("total", total);
+            } else {
+                json.writeNullField("total");
+            }
+            json.writeStringField("paymentMethod", rs.getString(4));
+            json.writeStringField("reseller", rs.getString(5));
+            json.writeFieldName("productIds");
+            long[] ids = productIds(rs);
+            json.writeArray(ids, 0, ids.length);
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+}
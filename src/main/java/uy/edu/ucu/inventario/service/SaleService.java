@@ -1,14 +1,39 @@
 package uy.edu.ucu.inventario.service;
 
+import uy.edu.ucu.inventario.dto.SaleFilter;
+import uy.edu.ucu.inventario.entity.Deposit;
 import uy.edu.ucu.inventario.entity.Product;
 import uy.edu.ucu.inventario.entity.Sale;
+import uy.edu.ucu.inventario.entity.SaleItem;
+import uy.edu.ucu.inventario.entity.StockMovement;
+import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.leaderboard.SalesLeaderboard;
+import uy.edu.ucu.inventario.lock.StockKey;
+import uy.edu.ucu.inventario.lock.StripedLockManager;
+import uy.edu.ucu.inventario.pagination.IdCursor;
+import uy.edu.ucu.inventario.repository.DepositRepository;
+import uy.edu.ucu.inventario.repository.ProductRepository;
 import uy.edu.ucu.inventario.repository.SaleRepository;
+import uy.edu.ucu.inventario.repository.SaleSpecifications;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Service for managing sales.
@@ -16,59 +41,306 @@ import java.util.Optional;
 @Service
 public class SaleService {
 
+    // Orden estable para la paginación: la venta más reciente primero
+    public static final Sort LISTING_ORDER = Sort.by(Sort.Direction.DESC, "id");
+
+    public static final int MAX_ITEMS = 500;
+
     private final SaleRepository saleRepository;
     private final AuditLogService auditLogService;
+    private final SaleCountCache countCache;
+    private final ProductRepository productRepository;
+    private final DepositRepository depositRepository;
+    private final StockMovementService stockMovementService;
+    private final StockWriteBehind writeBehind;
+    private final StripedLockManager stockLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final SalesRollupService salesRollup;
+    private final SalesLeaderboard leaderboard;
 
-    public SaleService(SaleRepository saleRepository, AuditLogService auditLogService) {
+    public SaleService(SaleRepository saleRepository, AuditLogService auditLogService, SaleCountCache countCache,
+                       ProductRepository productRepository, DepositRepository depositRepository,
+                       StockMovementService stockMovementService, StockWriteBehind writeBehind,
+                       StripedLockManager stockLocks, TransactionTemplate transactionTemplate,
+                       SalesRollupService salesRollup, SalesLeaderboard leaderboard) {
         this.saleRepository = saleRepository;
         this.auditLogService = auditLogService;
+        this.countCache = countCache;
+        this.productRepository = productRepository;
+        this.depositRepository = depositRepository;
+        this.stockMovementService = stockMovementService;
+        this.writeBehind = writeBehind;
+        this.stockLocks = stockLocks;
+        this.transactionTemplate = transactionTemplate;
+        this.salesRollup = salesRollup;
+        this.leaderboard = leaderboard;
+    }
+
+    /**
+     * Returns one page of sales matching the filter, without counting the full result.
+     */
+    public Slice<Sale> search(SaleFilter filter, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size, LISTING_ORDER);
+        return saleRepository.findBy(SaleSpecifications.matching(filter), q -> q.slice(pageable));
     }
 
-    public List<Sale> listAll() {
-        return saleRepository.findAll();
+    /**
+     * Returns the page of sales that follows the given cursor (keyset on id).
+     */
+    public Slice<Sale> searchAfter(SaleFilter filter, String cursor, int size) {
+        Specification<Sale> spec = SaleSpecifications.matching(filter)
+                .and(SaleSpecifications.idBefore(IdCursor.decode(cursor)));
+        Pageable pageable = PageRequest.of(0, size, LISTING_ORDER);
+        return saleRepository.findBy(spec, q -> q.slice(pageable));
     }
 
-    public long getTotalCount() {
-        return saleRepository.count();
+    public long countMatching(SaleFilter filter) {
+        return countCache.get(filter, () -> saleRepository.count(SaleSpecifications.matching(filter)));
     }
 
     public Optional<Sale> getById(Long id) {
         return saleRepository.findById(id);
     }
 
+    /**
+     * Saves a sale. A new sale with items is a checkout: see {@link #checkout(Sale)}.
+     * Without items only the product list is recorded and stock is not touched.
+     * The items of an existing sale cannot be changed, nor the products of a sale with
+     * items, which come from them. The daily rollup is updated in the same transaction.
+     *
+     * @throws ResponseStatusException 409 if an update changes the products of a sale with items
+     */
     public Sale save(Sale sale) {
         boolean isNew = (sale.getId() == null);
 
+        if (sale.getItems() != null && !sale.getItems().isEmpty()) {
+            if (!isNew) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sale items cannot be changed once the sale is created.");
+            }
+            return checkout(sale);
+        }
+
         // Validación: debe tener al menos un producto
         List<Product> products = sale.getProducts();
         if (products == null || products.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sale must include at least one product.");
         }
 
+        return transactionTemplate.execute(status -> {
+            sale.setProducts(resolveProducts(products));
+
+            Sale result;
+            if (isNew) {
+                result = saleRepository.save(sale);
+                leaderboard.recordAfterCommit(result);
+            } else {
+                Sale existing = findExisting(sale.getId());
+                if (!existing.getItems().isEmpty() && !sameProducts(existing.getProducts(), sale.getProducts())) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "The products of a sale with items come from its items and cannot be changed.");
+                }
+                salesRollup.remove(existing);
+                copyEditable(sale, existing);
+                // La fecha la pone @PreUpdate al hacer flush: hace falta para saber en qué día sumar
+                result = saleRepository.saveAndFlush(existing);
+            }
+            salesRollup.add(result);
+
+            auditLogService.saveLog(
+                "Sale",
+                result.getId(),
+                isNew ? "CREATE" : "UPDATE",
+                "Products: " + products.size()
+            );
+            return result;
+        });
+    }
+
+    /**
+     * Records a new sale with its items and takes the sold units out of stock, all in one
+     * transaction: each item becomes an EXIT movement applied with a conditional update,
+     * and the sale, its items and the movements go out as batched inserts. If any deposit
+     * lacks the stock nothing is written.
+     *
+     * A missing unit price is taken from the product's sale price and a missing total is
+     * the sum of the items. The product list is derived from the items.
+     *
+     * @throws ResponseStatusException 409 if a deposit does not hold the quantity beyond its reservations
+     */
+    public Sale checkout(Sale sale) {
+        List<SaleItem> items = sale.getItems();
+        if (items.size() > MAX_ITEMS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sale must not exceed " + MAX_ITEMS + " items.");
+        }
+
+        List<StockKey> keys = new ArrayList<>(items.size());
+        for (SaleItem item : items) {
+            validateItem(item);
+            keys.add(new StockKey(item.getProduct().getId(), item.getDeposit().getId()));
+        }
+
+        return stockLocks.withLocks(keys, () -> {
+            writeBehind.drain(keys);
+            return transactionTemplate.execute(status -> checkoutLocked(sale));
+        });
+    }
+
+    private Sale checkoutLocked(Sale sale) {
+        List<SaleItem> items = sale.getItems();
+
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> depositIds = new HashSet<>();
+        for (SaleItem item : items) {
+            productIds.add(item.getProduct().getId());
+            depositIds.add(item.getDeposit().getId());
+        }
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllByIdIn(productIds).forEach(p -> products.put(p.getId(), p));
+        // Los depósitos salen de la caché de segundo nivel; una consulta IN no la usaría
+        Map<Long, Deposit> deposits = new HashMap<>();
+        for (Long depositId : depositIds) {
+            depositRepository.findById(depositId).ifPresent(d -> deposits.put(depositId, d));
+        }
+
+        BigDecimal total = BigDecimal.ZERO;
+        Map<Long, Product> sold = new LinkedHashMap<>();
+        List<StockMovement> exits = new ArrayList<>(items.size());
+        for (SaleItem item : items) {
+            Product product = products.get(item.getProduct().getId());
+            if (product == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product with id " + item.getProduct().getId() + " not found.");
+            }
+            Deposit deposit = deposits.get(item.getDeposit().getId());
+            if (deposit == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Deposit with id " + item.getDeposit().getId() + " not found.");
+            }
+
+            // El precio queda fijado en la línea aunque después cambie el del producto
+            if (item.getUnitPrice() == null) {
+                if (product.getSalePrice() == null || product.getSalePrice().getValue() == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Product " + product.getId() + " has no sale price; the item must include a unit price.");
+                }
+                item.setUnitPrice(product.getSalePrice().getValue());
+            }
+
+            item.setSale(sale);
+            item.setProduct(product);
+            item.setDeposit(deposit);
+            total = total.add(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            sold.putIfAbsent(product.getId(), product);
+            exits.add(new StockMovement(MovementType.EXIT, product, deposit, null, item.getQuantity()));
+        }
+
+        if (sale.getTotal() == null) {
+            sale.setTotal(total);
+        }
+        sale.setProducts(new ArrayList<>(sold.values()));
+
+        stockMovementService.recordExits(exits);
         Sale saved = saleRepository.save(sale);
+        salesRollup.add(saved);
+        leaderboard.recordAfterCommit(saved);
 
         auditLogService.saveLog(
             "Sale",
             saved.getId(),
-            isNew ? "CREATE" : "UPDATE",
-            "Products: " + products.size()
+            "CREATE",
+            "Items: " + items.size()
         );
 
         return saved;
     }
 
+    private static void validateItem(SaleItem item) {
+        if (item == null || item.getProduct() == null || item.getProduct().getId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sale items must have a product id.");
+        }
+        if (item.getDeposit() == null || item.getDeposit().getId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sale items must have a deposit id.");
+        }
+        if (item.getQuantity() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Item quantity must be greater than zero.");
+        }
+        if (item.getUnitPrice() != null && item.getUnitPrice().signum() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Item unit price must not be negative.");
+        }
+    }
+
+    private Sale findExisting(Long id) {
+        return saleRepository.findById(id).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Sale with id " + id + " not found"));
+    }
+
+    // Copia los campos editables sobre la venta guardada, sin pisar sus líneas ni los productos que salen de ellas
+    private static void copyEditable(Sale sale, Sale existing) {
+        existing.setTotal(sale.getTotal());
+        existing.setPaymentMethod(sale.getPaymentMethod());
+        existing.setReseller(sale.getReseller());
+        if (existing.getItems().isEmpty()) {
+            existing.setProducts(sale.getProducts());
+        }
+    }
+
+    private static boolean sameProducts(List<Product> current, List<Product> requested) {
+        Set<Long> currentIds = new HashSet<>();
+        current.forEach(product -> currentIds.add(product.getId()));
+        Set<Long> requestedIds = new HashSet<>();
+        requested.forEach(product -> requestedIds.add(product.getId()));
+        return currentIds.equals(requestedIds);
+    }
+
+    /**
+     * Deletes a sale without items. A checkout cannot be deleted: its units already left
+     * stock through EXIT movements, which are not linked back to the sale.
+     *
+     * @throws ResponseStatusException 409 if the sale has items
+     */
     public void delete(Long id) {
-        if (!saleRepository.existsById(id)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Sale with id " + id + " not found");
+        transactionTemplate.executeWithoutResult(status -> {
+            Sale sale = findExisting(id);
+            if (!sale.getItems().isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Sales with items cannot be deleted: their units already left stock.");
+            }
+            salesRollup.remove(sale);
+            saleRepository.delete(sale);
+
+            auditLogService.saveLog(
+                "Sale",
+                id,
+                "DELETE",
+                "Sale deleted with id: " + id
+            );
+        });
+    }
+
+    /**
+     * Replaces the product references of the request (id only, no version) with the
+     * managed products, loaded in one query and kept in the request's order.
+     */
+    private List<Product> resolveProducts(List<Product> requested) {
+        Set<Long> ids = new HashSet<>();
+        for (Product product : requested) {
+            if (product == null || product.getId() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sale products must have an id.");
+            }
+            ids.add(product.getId());
         }
 
-        saleRepository.deleteById(id);
+        Map<Long, Product> found = new HashMap<>();
+        for (Product product : productRepository.findAllByIdIn(ids)) {
+            found.put(product.getId(), product);
+        }
 
-        auditLogService.saveLog(
-            "Sale",
-            id,
-            "DELETE",
-            "Sale deleted with id: " + id
-        );
+        List<Product> resolved = new ArrayList<>(requested.size());
+        for (Product product : requested) {
+            Product managed = found.get(product.getId());
+            if (managed == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product with id " + product.getId() + " not found.");
+            }
+            resolved.add(managed);
+        }
+        return resolved;
     }
-}
\ No newline at end of file
+}
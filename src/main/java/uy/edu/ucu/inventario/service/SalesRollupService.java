@@ -0,0 +1,366 @@
+package uy.edu.ucu.inventario.service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import uy.edu.ucu.inventario.dto.SalesRollupRebuild;
+import uy.edu.ucu.inventario.dto.SalesStats;
+import uy.edu.ucu.inventario.dto.SalesStatsRow;
+import uy.edu.ucu.inventario.entity.Sale;
+import uy.edu.ucu.inventario.enums.PaymentMethod;
+
+/**
+ * Keeps {@code sales_daily_rollup} (sales count and total per day, payment method and
+ * reseller) in step with the sales and answers the sales stats from it.
+ *
+ * Like {@link CounterService}, the deltas of a transaction are accumulated per row and
+ * written just before commit as {@code INSERT ... ON CONFLICT DO UPDATE} increments, in a
+ * fixed order. Sales without a date have no day and are left out.
+ *
+ * The rebuild recomputes a range of days from the sales, in chunks of days that run in
+ * parallel, each in its own transaction. It can run while sales keep coming: a chunk holds
+ * an exclusive advisory lock on each of its days, and a transaction writing deltas holds
+ * a shared one on the days it touches. A sale whose delta committed before the chunk got
+ * its locks is read by the chunk; any other sale waits and adds its delta once the chunk
+ * has committed, so the two never both count it.
+ */
+@Service
+public class SalesRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+
+    /** What the stats rows are grouped by. */
+    public enum GroupBy {
+        NONE("none", null),
+        DAY("day", "day"),
+        PAYMENT_METHOD("paymentMethod", "payment_method"),
+        RESELLER("reseller", "reseller");
+
+        private final String param;
+        private final String column;
+
+        GroupBy(String param, String column) {
+            this.param = param;
+            this.column = column;
+        }
+
+        public String param() {
+            return param;
+        }
+
+        public static GroupBy parse(String value) {
+            if (value == null || value.isBlank()) {
+                return DAY;
+            }
+            for (GroupBy groupBy : values()) {
+                if (groupBy.param.equalsIgnoreCase(value.trim())) {
+                    return groupBy;
+                }
+            }
+            throw new IllegalArgumentException("groupBy must be one of none, day, paymentMethod or reseller.");
+        }
+    }
+
+    private record Key(LocalDate day, PaymentMethod paymentMethod, String reseller) {}
+
+    private static final class Delta {
+        long count;
+        BigDecimal total = BigDecimal.ZERO;
+    }
+
+    // El mismo orden que la clave primaria (el medio de pago se guarda como texto)
+    private static final Comparator<Key> WRITE_ORDER = Comparator.comparing(Key::day)
+            .thenComparing(key -> key.paymentMethod().name())
+            .thenComparing(Key::reseller);
+
+    // Sin revendedor se guarda '' porque la columna es parte de la clave
+    private static final String NO_RESELLER = "";
+
+    private static final int DEFAULT_RANGE_DAYS = 30;
+
+    private static final String ADD =
+            "INSERT INTO sales_daily_rollup (day, payment_method, reseller, sales_count, total) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (day, payment_method, reseller) DO UPDATE SET " +
+            "sales_count = sales_daily_rollup.sales_count + EXCLUDED.sales_count, " +
+            "total = sales_daily_rollup.total + EXCLUDED.total";
+
+    private static final String SALES_RANGE = "SELECT CAST(min(date) AS DATE), CAST(max(date) AS DATE) FROM sales";
+
+    // Locks por día (clave: espacio fijo + día desde epoch), liberados al terminar la transacción
+    private static final int DAY_LOCK_SPACE = 0x524F4C4C;
+
+    private static final String LOCK_DAY_SHARED = "SELECT pg_advisory_xact_lock_shared(?, ?)";
+
+    // En orden ascendente, como los deltas: nunca se esperan en círculo
+    private static final String LOCK_DAYS =
+            "SELECT pg_advisory_xact_lock(?, d) FROM generate_series(?, ?) d ORDER BY d";
+
+    private static final String CLEAR_DAYS = "DELETE FROM sales_daily_rollup WHERE day >= ? AND day < ?";
+
+    // Recorre sales por ix_sales_date; con los días bloqueados nadie más escribe sus filas
+    private static final String AGGREGATE_DAYS =
+            "INSERT INTO sales_daily_rollup (day, payment_method, reseller, sales_count, total) " +
+            "SELECT CAST(date AS DATE), payment_method, COALESCE(reseller, ''), count(*), COALESCE(sum(total), 0) " +
+            "FROM sales WHERE date >= ? AND date < ? GROUP BY 1, 2, 3";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkDays;
+    private final int parallelism;
+
+    public SalesRollupService(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        @Value("${inventario.sales-rollup.chunk-days:31}") int chunkDays,
+        @Value("${inventario.sales-rollup.parallelism:4}") int parallelism
+    ) {
+        if (chunkDays <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid sales rollup settings.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkDays = chunkDays;
+        this.parallelism = parallelism;
+    }
+
+    /** Counts a saved sale (its date must already be set). */
+    public void add(Sale sale) {
+        apply(sale, 1);
+    }
+
+    /** Takes a sale out, before it is deleted or edited. */
+    public void remove(Sale sale) {
+        apply(sale, -1);
+    }
+
+    private void apply(Sale sale, int sign) {
+        LocalDateTime date = sale.getDate();
+        if (date == null || sale.getPaymentMethod() == null) {
+            return;
+        }
+        String reseller = sale.getReseller() != null ? sale.getReseller() : NO_RESELLER;
+        Key key = new Key(date.toLocalDate(), sale.getPaymentMethod(), reseller);
+        BigDecimal total = sale.getTotal() != null ? sale.getTotal() : BigDecimal.ZERO;
+
+        Delta delta = new Delta();
+        delta.count = sign;
+        delta.total = sign < 0 ? total.negate() : total;
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            // El lock del día dura lo que la transacción: sin una se abre sólo para el delta
+            transactionTemplate.executeWithoutResult(status -> write(Map.of(key, delta)));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<Key, Delta> pending = (Map<Key, Delta>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new TreeMap<>(WRITE_ORDER);
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new PendingDeltas(pending));
+        }
+        pending.merge(key, delta, (a, b) -> {
+            a.count += b.count;
+            a.total = a.total.add(b.total);
+            return a;
+        });
+    }
+
+    private void write(Map<Key, Delta> deltas) {
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> {
+            // Una edición que no cambia de fila deja un delta nulo: no hace falta tocarla
+            if (delta.count != 0 || delta.total.signum() != 0) {
+                rows.add(new Object[] {
+                    Date.valueOf(key.day()), key.paymentMethod().name(), key.reseller(), delta.count, delta.total
+                });
+            }
+        });
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        // Espera a una reconstrucción que esté rehaciendo alguno de estos días
+        long lockedDay = Long.MIN_VALUE;
+        for (Key key : deltas.keySet()) {
+            long day = key.day().toEpochDay();
+            if (day != lockedDay) {
+                jdbcTemplate.query(LOCK_DAY_SHARED, rs -> {}, DAY_LOCK_SPACE, (int) day);
+                lockedDay = day;
+            }
+        }
+        jdbcTemplate.batchUpdate(ADD, rows);
+    }
+
+    // Escribe los deltas al final de la transacción, para que la fila del día quede bloqueada lo menos posible
+    private final class PendingDeltas implements TransactionSynchronization {
+
+        private final Map<Key, Delta> pending;
+
+        PendingDeltas(Map<Key, Delta> pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // Los inserts de la venta salen antes: mientras tanto la fila del día sigue libre
+            if (entityManager.isJoinedToTransaction()) {
+                entityManager.flush();
+            }
+            write(pending);
+            pending.clear();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(SalesRollupService.this);
+        }
+    }
+
+    /**
+     * Sales count and total between two days (both inclusive), filtered by payment method
+     * and reseller. Without days it covers the last 30 days up to today.
+     */
+    public SalesStats stats(LocalDate from, LocalDate to, PaymentMethod paymentMethod, String reseller, GroupBy groupBy) {
+        LocalDate last = to != null ? to : LocalDate.now();
+        LocalDate first = from != null ? from : last.minusDays(DEFAULT_RANGE_DAYS - 1L);
+        if (first.isAfter(last)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'.");
+        }
+
+        StringBuilder where = new StringBuilder(" FROM sales_daily_rollup WHERE day >= ? AND day <= ?");
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(first), Date.valueOf(last)));
+        if (paymentMethod != null) {
+            where.append(" AND payment_method = ?");
+            args.add(paymentMethod.name());
+        }
+        if (reseller != null && !reseller.isBlank()) {
+            where.append(" AND reseller = ?");
+            args.add(reseller.trim());
+        }
+
+        if (groupBy == GroupBy.NONE) {
+            return jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(sum(sales_count), 0), COALESCE(sum(total), 0)" + where,
+                    (rs, row) -> new SalesStats(first, last, groupBy.param(), rs.getLong(1), rs.getBigDecimal(2), List.of()),
+                    args.toArray());
+        }
+
+        // La columna sale del enum, nunca del pedido; las filas que quedaron en cero no se muestran
+        String column = groupBy.column;
+        String sql = "SELECT " + column + ", sum(sales_count), sum(total)" + where +
+                " GROUP BY " + column + " HAVING sum(sales_count) <> 0 ORDER BY " + column;
+        List<SalesStatsRow> rows = jdbcTemplate.query(sql, (rs, row) -> switch (groupBy) {
+            case DAY -> new SalesStatsRow(rs.getDate(1).toLocalDate(), null, null, rs.getLong(2), rs.getBigDecimal(3));
+            case PAYMENT_METHOD -> new SalesStatsRow(null, PaymentMethod.valueOf(rs.getString(1)), null,
+                    rs.getLong(2), rs.getBigDecimal(3));
+            default -> {
+                String name = rs.getString(1);
+                yield new SalesStatsRow(null, null, name.isEmpty() ? null : name, rs.getLong(2), rs.getBigDecimal(3));
+            }
+        }, args.toArray());
+
+        long count = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (SalesStatsRow row : rows) {
+            count += row.salesCount();
+            total = total.add(row.total());
+        }
+        return new SalesStats(first, last, groupBy.param(), count, total, rows);
+    }
+
+    /**
+     * Recomputes the rollup between two days (both inclusive) from the sales. A missing
+     * day is taken from the oldest or newest sale.
+     */
+    public synchronized SalesRollupRebuild rebuild(LocalDate from, LocalDate to) {
+        long start = System.nanoTime();
+
+        LocalDate first = from;
+        LocalDate last = to;
+        if (first == null || last == null) {
+            LocalDate[] range = jdbcTemplate.queryForObject(SALES_RANGE, (rs, row) -> new LocalDate[] {
+                rs.getDate(1) != null ? rs.getDate(1).toLocalDate() : null,
+                rs.getDate(2) != null ? rs.getDate(2).toLocalDate() : null
+            });
+            first = first != null ? first : range[0];
+            last = last != null ? last : range[1];
+        }
+        if (first == null || last == null) {
+            return new SalesRollupRebuild(null, null, 0, 0, (System.nanoTime() - start) / 1_000_000);
+        }
+        if (first.isAfter(last)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'.");
+        }
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (LocalDate chunk = first; !chunk.isAfter(last); chunk = chunk.plusDays(chunkDays)) {
+            LocalDate chunkStart = chunk;
+            LocalDate chunkEnd = chunk.plusDays(Math.min(chunkDays, ChronoUnit.DAYS.between(chunk, last) + 1));
+            tasks.add(() -> rebuildDays(chunkStart, chunkEnd));
+        }
+
+        int rows = 0;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<Integer> result : pool.invokeAll(tasks)) {
+                rows += result.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sales rollup rebuild was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Sales rollup rebuild failed", ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        log.info("Sales rollup rebuilt from {} to {} in {} chunks ({} rows) in {} ms",
+                first, last, tasks.size(), rows, elapsed);
+        return new SalesRollupRebuild(first, last, tasks.size(), rows, elapsed);
+    }
+
+    // Días [start, end): los bloquea, borra sus filas y las vuelve a agregar en la misma transacción
+    private int rebuildDays(LocalDate start, LocalDate end) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.query(LOCK_DAYS, rs -> {}, DAY_LOCK_SPACE,
+                    (int) start.toEpochDay(), (int) end.minusDays(1).toEpochDay());
+            jdbcTemplate.update(CLEAR_DAYS, Date.valueOf(start), Date.valueOf(end));
+            return jdbcTemplate.update(AGGREGATE_DAYS,
+                    Timestamp.valueOf(start.atStartOfDay()), Timestamp.valueOf(end.atStartOfDay()));
+        });
+    }
+}
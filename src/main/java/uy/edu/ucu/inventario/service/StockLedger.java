@@ -0,0 +1,275 @@
+package uy.edu.ucu.inventario.service;
+
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import uy.edu.ucu.inventario.availability.StockAvailabilityIndex;
+import uy.edu.ucu.inventario.entity.Deposit;
+import uy.edu.ucu.inventario.entity.Product;
+import uy.edu.ucu.inventario.lock.StockKey;
+import uy.edu.ucu.inventario.reservation.ReservationRegistry;
+
+/**
+ * Applies quantity changes to the stock table with single conditional statements,
+ * so concurrent movements on the same product and deposit never read-modify-write
+ * in Java: an entry is an upsert and an exit only succeeds if enough stock is left.
+ *
+ * Units held by open reservations are not available to an exit. A transfer locks both
+ * rows first, since it has to decide whether the origin is emptied before writing.
+ *
+ * Runs inside the caller's transaction. A row that reaches zero is removed, and the
+ * deposit/product counters follow rows being created or removed. Every change bumps the
+ * row's version, so a concurrent edit of the same Stock entity fails its optimistic check.
+ */
+@Component
+public class StockLedger {
+
+    private static final String RECEIVE =
+            "INSERT INTO stock (id, product_id, deposit_id, quantity) VALUES (nextval('stock_seq'), ?, ?, ?) " +
+            "ON CONFLICT (product_id, deposit_id) DO UPDATE " +
+            "SET quantity = stock.quantity + EXCLUDED.quantity, version = stock.version + 1 " +
+            "RETURNING quantity, (xmax = 0) AS created";
+
+    private static final String WITHDRAW =
+            "UPDATE stock SET quantity = quantity - ?, version = version + 1 " +
+            "WHERE product_id = ? AND deposit_id = ? AND quantity >= ? " +
+            "RETURNING quantity";
+
+    // Varias salidas en una sentencia: cada fila sólo baja si cubre su cantidad más lo reservado
+    private static final String WITHDRAW_ALL =
+            "UPDATE stock s SET quantity = s.quantity - v.quantity, version = s.version + 1 " +
+            "FROM unnest(?, ?, ?, ?) AS v(product_id, deposit_id, quantity, required) " +
+            "WHERE s.product_id = v.product_id AND s.deposit_id = v.deposit_id AND s.quantity >= v.required " +
+            "RETURNING s.product_id, s.deposit_id, s.quantity";
+
+    // Sólo borra si sigue en cero: una entrada concurrente pudo haberla repuesto
+    private static final String DELETE_IF_EMPTY =
+            "DELETE FROM stock WHERE product_id = ? AND deposit_id = ? AND quantity = 0";
+
+    // Bloquea las filas existentes de origen y destino en orden de id ascendente
+    private static final String LOCK_TRANSFER_ROWS =
+            "SELECT id, deposit_id, quantity FROM stock " +
+            "WHERE product_id = ? AND deposit_id IN (?, ?) ORDER BY id FOR UPDATE";
+
+    // Origen y destino en una sola sentencia; el CTE se ejecuta aunque no se lo referencie
+    private static final String TRANSFER_UPSERT =
+            "INSERT INTO stock (id, product_id, deposit_id, quantity) VALUES (nextval('stock_seq'), ?, ?, ?) " +
+            "ON CONFLICT (product_id, deposit_id) DO UPDATE " +
+            "SET quantity = stock.quantity + EXCLUDED.quantity, version = stock.version + 1 " +
+            "RETURNING quantity, (xmax = 0) AS created";
+
+    private static final String TRANSFER_DECREMENT =
+            "WITH origin AS (UPDATE stock SET quantity = quantity - ?, version = version + 1 WHERE id = ?) " +
+            TRANSFER_UPSERT;
+
+    private static final String TRANSFER_EMPTYING =
+            "WITH origin AS (DELETE FROM stock WHERE id = ?) " + TRANSFER_UPSERT;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CounterService counterService;
+    private final ReservationRegistry reservations;
+    private final StockAvailabilityIndex availabilityIndex;
+
+    public StockLedger(
+        JdbcTemplate jdbcTemplate,
+        CounterService counterService,
+        ReservationRegistry reservations,
+        StockAvailabilityIndex availabilityIndex
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.counterService = counterService;
+        this.reservations = reservations;
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    /**
+     * Adds the quantity to the product's stock in the deposit, creating the row if needed.
+     *
+     * @return true if the row did not exist
+     */
+    public boolean receive(Product product, Deposit deposit, int quantity) {
+        // xmax = 0 sólo en filas recién insertadas, no en las que actualizó el ON CONFLICT
+        boolean created = jdbcTemplate.queryForObject(RECEIVE, (rs, row) -> {
+            availabilityIndex.setAfterCommit(product.getId(), deposit.getId(), rs.getInt("quantity"));
+            return rs.getBoolean("created");
+        }, product.getId(), deposit.getId(), quantity);
+
+        if (created) {
+            counterService.addToDepositsCount(product, 1);
+            counterService.addToProductCount(deposit, 1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes the quantity out of the product's stock in the deposit.
+     *
+     * @throws ResponseStatusException 409 if the deposit does not hold that much beyond its reservations
+     */
+    public void withdraw(Product product, Deposit deposit, int quantity) {
+        // Lo reservado queda intocable; el lock del par impide que cambie durante el UPDATE
+        int reserved = reservations.reserved(product.getId(), deposit.getId());
+        withdraw(product, deposit, quantity, quantity + reserved);
+    }
+
+    /** A quantity to take out of one product's stock in one deposit. */
+    public record Withdrawal(Product product, Deposit deposit, int quantity) {}
+
+    /**
+     * Takes several quantities out of stock with a single conditional update, for writes
+     * such as a checkout that decrement many rows at once. Withdrawals on the same product
+     * and deposit are added up first. If any deposit does not hold its quantity beyond its
+     * reservations nothing is published and the caller's transaction must roll back.
+     *
+     * @throws ResponseStatusException 409 naming the first withdrawal that could not be applied
+     */
+    public void withdrawAll(List<Withdrawal> withdrawals) {
+        Map<StockKey, Withdrawal> merged = new HashMap<>(withdrawals.size() * 2);
+        for (Withdrawal w : withdrawals) {
+            merged.merge(new StockKey(w.product().getId(), w.deposit().getId()), w,
+                    (a, b) -> new Withdrawal(a.product(), a.deposit(), a.quantity() + b.quantity()));
+        }
+
+        int size = merged.size();
+        Long[] productIds = new Long[size];
+        Long[] depositIds = new Long[size];
+        Integer[] quantities = new Integer[size];
+        Integer[] required = new Integer[size];
+        int i = 0;
+        for (Map.Entry<StockKey, Withdrawal> entry : merged.entrySet()) {
+            StockKey key = entry.getKey();
+            productIds[i] = key.productId();
+            depositIds[i] = key.depositId();
+            quantities[i] = entry.getValue().quantity();
+            required[i] = entry.getValue().quantity() + reservations.reserved(key.productId(), key.depositId());
+            i++;
+        }
+
+        Map<StockKey, Integer> remaining = new HashMap<>(size * 2);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(WITHDRAW_ALL);
+            ps.setArray(1, con.createArrayOf("bigint", productIds));
+            ps.setArray(2, con.createArrayOf("bigint", depositIds));
+            ps.setArray(3, con.createArrayOf("integer", quantities));
+            ps.setArray(4, con.createArrayOf("integer", required));
+            return ps;
+        }, rs -> {
+            remaining.put(new StockKey(rs.getLong("product_id"), rs.getLong("deposit_id")), rs.getInt("quantity"));
+        });
+
+        if (remaining.size() < size) {
+            for (StockKey key : merged.keySet()) {
+                if (!remaining.containsKey(key)) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Insufficient stock of product " + key.productId() + " in deposit " + key.depositId() + ".");
+                }
+            }
+        }
+
+        for (Map.Entry<StockKey, Withdrawal> entry : merged.entrySet()) {
+            StockKey key = entry.getKey();
+            Withdrawal w = entry.getValue();
+            int left = remaining.get(key);
+            if (left == 0 && jdbcTemplate.update(DELETE_IF_EMPTY, key.productId(), key.depositId()) > 0) {
+                availabilityIndex.removeAfterCommit(key.productId(), key.depositId());
+                counterService.addToDepositsCount(w.product(), -1);
+                counterService.addToProductCount(w.deposit(), -1);
+            } else {
+                availabilityIndex.setAfterCommit(key.productId(), key.depositId(), left);
+            }
+        }
+    }
+
+    /**
+     * Applies a net change that was already checked against availability when its
+     * movements were accepted, so reservations taken since then do not block it.
+     */
+    public void applyDelta(Product product, Deposit deposit, int delta) {
+        if (delta > 0) {
+            receive(product, deposit, delta);
+        } else if (delta < 0) {
+            withdraw(product, deposit, -delta, -delta);
+        }
+    }
+
+    private void withdraw(Product product, Deposit deposit, int quantity, int required) {
+        List<Integer> remaining = jdbcTemplate.queryForList(WITHDRAW, Integer.class,
+                quantity, product.getId(), deposit.getId(), required);
+
+        if (remaining.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Insufficient stock of product " + product.getId() + " in deposit " + deposit.getId() + ".");
+        }
+
+        if (remaining.get(0) == 0
+                && jdbcTemplate.update(DELETE_IF_EMPTY, product.getId(), deposit.getId()) > 0) {
+            availabilityIndex.removeAfterCommit(product.getId(), deposit.getId());
+            counterService.addToDepositsCount(product, -1);
+            counterService.addToProductCount(deposit, -1);
+        } else {
+            availabilityIndex.setAfterCommit(product.getId(), deposit.getId(), remaining.get(0));
+        }
+    }
+
+    /**
+     * Moves the quantity between deposits in two statements: one that locks the rows that
+     * exist, always in ascending id order so opposing transfers wait instead of deadlocking,
+     * and one that decrements (or removes) the origin and upserts the destination.
+     *
+     * @throws ResponseStatusException 409 if the origin does not hold that much beyond its reservations
+     */
+    public void transfer(Product product, Deposit origin, Deposit destination, int quantity) {
+        long productId = product.getId();
+        long originId = origin.getId();
+        long destinationId = destination.getId();
+
+        long originRowId = 0;
+        int originQuantity = 0;
+        for (long[] row : jdbcTemplate.query(LOCK_TRANSFER_ROWS,
+                (rs, n) -> new long[] { rs.getLong("id"), rs.getLong("deposit_id"), rs.getInt("quantity") },
+                productId, originId, destinationId)) {
+            if (row[1] == originId) {
+                originRowId = row[0];
+                originQuantity = (int) row[2];
+            }
+        }
+
+        int reserved = reservations.reserved(productId, originId);
+        if (originRowId == 0 || originQuantity < quantity + reserved) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Insufficient stock of product " + productId + " in deposit " + originId + ".");
+        }
+
+        int remaining = originQuantity - quantity;
+        Object[] args = remaining == 0
+                ? new Object[] { originRowId, productId, destinationId, quantity }
+                : new Object[] { quantity, originRowId, productId, destinationId, quantity };
+        boolean created = jdbcTemplate.queryForObject(remaining == 0 ? TRANSFER_EMPTYING : TRANSFER_DECREMENT,
+                (rs, row) -> {
+                    availabilityIndex.setAfterCommit(productId, destinationId, rs.getInt("quantity"));
+                    return rs.getBoolean("created");
+                }, args);
+
+        if (remaining == 0) {
+            availabilityIndex.removeAfterCommit(productId, originId);
+            counterService.addToDepositsCount(product, -1);
+            counterService.addToProductCount(origin, -1);
+        } else {
+            availabilityIndex.setAfterCommit(productId, originId, remaining);
+        }
+
+        // Si se vació el origen y se creó el destino, el contador del producto queda igual
+        if (created) {
+            counterService.addToDepositsCount(product, 1);
+            counterService.addToProductCount(destination, 1);
+        }
+    }
+}
@@ -1,31 +1,49 @@
 package uy.edu.ucu.inventario.service;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import uy.edu.ucu.inventario.dto.BatchItemResult;
+import uy.edu.ucu.inventario.dto.StockMovementView;
 import uy.edu.ucu.inventario.entity.Deposit;
 import uy.edu.ucu.inventario.entity.Product;
-import uy.edu.ucu.inventario.entity.Stock;
 import uy.edu.ucu.inventario.entity.StockMovement;
 import uy.edu.ucu.inventario.entity.User;
 import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.lock.StockKey;
+import uy.edu.ucu.inventario.lock.StripedLockManager;
+import uy.edu.ucu.inventario.pagination.CursorPage;
+import uy.edu.ucu.inventario.pagination.IdCursor;
 import uy.edu.ucu.inventario.repository.DepositRepository;
 import uy.edu.ucu.inventario.repository.ProductRepository;
 import uy.edu.ucu.inventario.repository.StockMovementRepository;
-import uy.edu.ucu.inventario.repository.StockRepository;
 import uy.edu.ucu.inventario.repository.UserRepository;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 public class StockMovementService {
 
+    public static final int MAX_BATCH_SIZE = 10_000;
+
     private final StockMovementRepository stockMovementRepository;
     private final AuditLogService auditLogService;
-    private final StockRepository stockRepository;
-    private final ProductService productService;
+    private final StockLedger stockLedger;
+    private final StockWriteBehind writeBehind;
+    private final StockSnapshotService stockSnapshots;
+    private final StripedLockManager stockLocks;
+    private final TransactionTemplate transactionTemplate;
     private final ProductRepository productRepository;
     private final DepositRepository depositRepository;
     private final UserRepository userRepository;
@@ -33,33 +51,70 @@ public class StockMovementService {
     public StockMovementService(
             StockMovementRepository stockMovementRepository,
             AuditLogService auditLogService,
-            StockRepository stockRepository,
-            ProductService productService,
+            StockLedger stockLedger,
+            StockWriteBehind writeBehind,
+            StockSnapshotService stockSnapshots,
+            StripedLockManager stockLocks,
+            TransactionTemplate transactionTemplate,
             ProductRepository productRepository,
             DepositRepository depositRepository,
             UserRepository userRepository
             ) {
         this.stockMovementRepository = stockMovementRepository;
         this.auditLogService = auditLogService;
-        this.stockRepository = stockRepository;
-        this.productService = productService;
+        this.stockLedger = stockLedger;
+        this.writeBehind = writeBehind;
+        this.stockSnapshots = stockSnapshots;
+        this.stockLocks = stockLocks;
+        this.transactionTemplate = transactionTemplate;
         this.productRepository = productRepository;
         this.depositRepository = depositRepository;
         this.userRepository = userRepository;
     }
 
-    public List<StockMovement> listAll() {
-        return stockMovementRepository.findAll();
+    public CursorPage<StockMovementView> listPage(String cursor, Integer size) {
+        return page(cursor, size, stockMovementRepository::findPage);
     }
 
     public Optional<StockMovement> getById(Long id) {
         return stockMovementRepository.findById(id);
     }
 
+    public Optional<StockMovementView> getViewById(Long id) {
+        return stockMovementRepository.findViewById(id);
+    }
+
+    /**
+     * Saves the movement and applies it to stock. Movements on the same product and
+     * deposit run one at a time, from before the first read until after commit.
+     * In write-behind mode a new entry or exit only reaches the stock table on the next flush.
+     */
     public StockMovement save(StockMovement movement) {
         boolean isNew = (movement.getId() == null);
+        boolean deferred = writeBehind.accepts(movement, isNew);
+
+        if (isNew) {
+            List<StockKey> keys = stockKeys(movement);
+            return stockLocks.withLocks(keys, () -> saveWithLocks(movement, true, deferred, keys));
+        }
+        // Al editar también se tocan las claves del movimiento original
+        return withStoredMovementLocks(movement.getId(), stockKeys(movement),
+                keys -> saveWithLocks(movement, false, deferred, keys));
+    }
+
+    private StockMovement saveWithLocks(StockMovement movement, boolean isNew, boolean deferred, List<StockKey> keys) {
+        if (!deferred) {
+            writeBehind.drain(keys);
+        }
+        StockMovement saved = transactionTemplate.execute(status -> saveLocked(movement, isNew, deferred, keys));
+        if (deferred) {
+            writeBehind.enqueue(saved);
+        }
+        return saved;
+    }
+
+    private StockMovement saveLocked(StockMovement movement, boolean isNew, boolean deferred, List<StockKey> locked) {
 
-        
         // --- Búsqueda y carga de entidades completas ---
         if (movement.getProduct() != null && movement.getProduct().getId() != null) {
             Product product = productRepository.findById(movement.getProduct().getId())
@@ -90,8 +145,170 @@ public class StockMovementService {
             movement.setDestinationDeposit(destinationDeposit);
         }
         // ----------------------------------------------------
-        
-        // Validaciones
+
+        validate(movement);
+
+        if (!isNew) {
+            StockMovementView previous = findLocked(movement.getId(), locked);
+            stockSnapshots.invalidateFrom(previous.id());
+            revertStockEffects(previous);
+        }
+
+        return record(movement, isNew, deferred);
+    }
+
+    /**
+     * Ingests many movements at once. Every referenced product, deposit and user is loaded
+     * with one IN query per table, all movements are validated before anything is written,
+     * and the valid ones are applied in a single transaction (inserts go out in JDBC batches).
+     * Invalid movements, and exits without enough stock, are reported in their result
+     * and do not stop the rest.
+     */
+    public List<BatchItemResult> saveBatch(List<StockMovement> movements) {
+        if (movements == null || movements.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch must include at least one movement.");
+        }
+        if (movements.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch must not exceed " + MAX_BATCH_SIZE + " movements.");
+        }
+
+        List<StockKey> keys = new ArrayList<>();
+        for (StockMovement m : movements) {
+            if (m != null) {
+                keys.addAll(stockKeys(m));
+            }
+        }
+
+        return stockLocks.withLocks(keys, () -> {
+            writeBehind.drain(keys);
+            return transactionTemplate.execute(status -> saveBatchLocked(movements));
+        });
+    }
+
+    private List<BatchItemResult> saveBatchLocked(List<StockMovement> movements) {
+
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> depositIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (StockMovement m : movements) {
+            if (m == null) {
+                continue;
+            }
+            collectId(m.getProduct() != null ? m.getProduct().getId() : null, productIds);
+            collectId(m.getOriginDeposit() != null ? m.getOriginDeposit().getId() : null, depositIds);
+            collectId(m.getDestinationDeposit() != null ? m.getDestinationDeposit().getId() : null, depositIds);
+            collectId(m.getUser() != null ? m.getUser().getId() : null, userIds);
+        }
+
+        Map<Long, Product> products = byId(productRepository.findAllById(productIds), Product::getId);
+        Map<Long, Deposit> deposits = byId(depositRepository.findAllById(depositIds), Deposit::getId);
+        Map<Long, User> users = byId(userRepository.findAllById(userIds), User::getId);
+
+        // Validación completa antes de escribir
+        List<BatchItemResult> results = new ArrayList<>(movements.size());
+        List<StockMovement> accepted = new ArrayList<>(movements.size());
+        for (int i = 0; i < movements.size(); i++) {
+            StockMovement m = movements.get(i);
+            try {
+                if (m == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Movement must not be null.");
+                }
+                if (m.getId() != null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch movements must be new (no id).");
+                }
+                bindReferences(m, products, deposits, users);
+                validate(m);
+                accepted.add(m);
+                results.add(null);
+            } catch (ResponseStatusException ex) {
+                results.add(BatchItemResult.failed(i, ex.getReason()));
+            }
+        }
+
+        // Un movimiento sin stock suficiente se rechaza sin afectar al resto del lote
+        int next = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                try {
+                    StockMovement saved = record(accepted.get(next++), true, false);
+                    results.set(i, BatchItemResult.created(i, saved.getId()));
+                } catch (ResponseStatusException ex) {
+                    results.set(i, BatchItemResult.failed(i, ex.getReason()));
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Records exits that belong to a larger write, such as a checkout: they run in the
+     * caller's transaction, which must already hold the movements' stock keys and have
+     * drained their write-behind deltas. Products and deposits must be managed entities.
+     * All the decrements go out as one conditional update.
+     *
+     * @throws ResponseStatusException 409 if any deposit lacks the stock
+     */
+    public List<StockMovement> recordExits(List<StockMovement> exits) {
+        List<StockLedger.Withdrawal> withdrawals = new ArrayList<>(exits.size());
+        for (StockMovement exit : exits) {
+            if (exit.getType() != MovementType.EXIT) {
+                throw new IllegalArgumentException("Only EXIT movements can be recorded this way.");
+            }
+            validate(exit);
+            withdrawals.add(new StockLedger.Withdrawal(exit.getProduct(), exit.getOriginDeposit(), exit.getQuantity()));
+        }
+        stockLedger.withdrawAll(withdrawals);
+
+        List<StockMovement> saved = new ArrayList<>(exits.size());
+        for (StockMovement exit : exits) {
+            exit.setStockApplied(true);
+            saved.add(store(exit, true));
+        }
+        return saved;
+    }
+
+    private static void collectId(Long id, Set<Long> ids) {
+        if (id != null) {
+            ids.add(id);
+        }
+    }
+
+    private static <T> Map<Long, T> byId(List<T> entities, Function<T, Long> id) {
+        Map<Long, T> map = new HashMap<>(entities.size() * 2);
+        for (T entity : entities) {
+            map.put(id.apply(entity), entity);
+        }
+        return map;
+    }
+
+    // Igual que la carga de save(), pero desde entidades ya traídas en bloque
+    private void bindReferences(StockMovement m, Map<Long, Product> products, Map<Long, Deposit> deposits, Map<Long, User> users) {
+        if (m.getProduct() == null || m.getProduct().getId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product must not be null.");
+        }
+        m.setProduct(require(products, m.getProduct().getId(), "Product not found."));
+
+        if (m.getUser() != null && m.getUser().getId() != null) {
+            m.setUser(require(users, m.getUser().getId(), "User not found."));
+        }
+        if (m.getOriginDeposit() != null && m.getOriginDeposit().getId() != null) {
+            m.setOriginDeposit(require(deposits, m.getOriginDeposit().getId(), "Origin deposit not found."));
+        }
+        if (m.getDestinationDeposit() != null && m.getDestinationDeposit().getId() != null) {
+            m.setDestinationDeposit(require(deposits, m.getDestinationDeposit().getId(), "Destination deposit not found."));
+        }
+    }
+
+    private static <T> T require(Map<Long, T> entities, Long id, String notFound) {
+        T entity = entities.get(id);
+        if (entity == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, notFound);
+        }
+        return entity;
+    }
+
+    private void validate(StockMovement movement) {
         if (movement.getProduct() == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product must not be null.");
         }
@@ -100,10 +317,10 @@ public class StockMovementService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Movement type must not be null.");
         }
 
-        
-        
-        
-        
+        if (movement.getQuantity() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be greater than zero.");
+        }
+
         switch (movement.getType()) {
             case ENTRY -> {
                 if (movement.getDestinationDeposit() == null) {
@@ -119,45 +336,57 @@ public class StockMovementService {
                 if (movement.getOriginDeposit() == null || movement.getDestinationDeposit() == null) {
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Both origin and destination deposits are required for TRANSFER.");
                 }
+                if (Objects.equals(movement.getOriginDeposit().getId(), movement.getDestinationDeposit().getId())) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Origin and destination deposits must differ for TRANSFER.");
+                }
             }
         }
+    }
 
-        StockMovement saved = stockMovementRepository.save(movement);
-
-        Product product = movement.getProduct();
-
-        switch (movement.getType()) {
-            case ENTRY -> {
-                boolean exists = stockRepository.existsByProductIdAndDepositId(
-                        product.getId(), movement.getDestinationDeposit().getId());
-                if (!exists) {
-                    productService.incrementDepositsCount(product);
-                }
+    // Claves (producto, depósito) que toca un movimiento, tomadas de los ids tal como llegan
+    private static List<StockKey> stockKeys(StockMovement m) {
+        List<StockKey> keys = new ArrayList<>(2);
+        Long productId = m.getProduct() != null ? m.getProduct().getId() : null;
+        if (productId != null) {
+            if (m.getOriginDeposit() != null && m.getOriginDeposit().getId() != null) {
+                keys.add(new StockKey(productId, m.getOriginDeposit().getId()));
             }
-            case EXIT -> {
-                Long depositId = movement.getOriginDeposit().getId();
-                Optional<Stock> stockOpt = stockRepository.findByProductIdAndDepositId(product.getId(), depositId);
-                if (stockOpt.isPresent() && stockOpt.get().getQuantity() == 0) {
-                    productService.decrementDepositsCount(product);
-                    stockRepository.deleteById(stockOpt.get().getId());
-                }
+            if (m.getDestinationDeposit() != null && m.getDestinationDeposit().getId() != null) {
+                keys.add(new StockKey(productId, m.getDestinationDeposit().getId()));
             }
-            case TRANSFER -> {
-                Long originId = movement.getOriginDeposit().getId();
-                Long destinationId = movement.getDestinationDeposit().getId();
+        }
+        return keys;
+    }
 
-                Optional<Stock> originStock = stockRepository.findByProductIdAndDepositId(product.getId(), originId);
-                if (originStock.isPresent() && originStock.get().getQuantity() == 0) {
-                    productService.decrementDepositsCount(product);
-                    stockRepository.deleteById(originStock.get().getId());
-                }
+    private static List<StockKey> stockKeys(StockMovementView v) {
+        List<StockKey> keys = new ArrayList<>(2);
+        if (v.originDepositId() != null) {
+            keys.add(new StockKey(v.productId(), v.originDepositId()));
+        }
+        if (v.destinationDepositId() != null) {
+            keys.add(new StockKey(v.productId(), v.destinationDepositId()));
+        }
+        return keys;
+    }
 
-                boolean alreadyInDestination = stockRepository.existsByProductIdAndDepositId(product.getId(), destinationId);
-                if (!alreadyInDestination) {
-                    productService.incrementDepositsCount(product);
-                }
+    // Aplica el movimiento sobre el stock (o sólo lo valida, si queda diferido) y lo guarda y audita
+    private StockMovement record(StockMovement movement, boolean isNew, boolean deferred) {
+        if (deferred) {
+            if (movement.getType() == MovementType.EXIT) {
+                writeBehind.checkAvailable(movement.getProduct().getId(), movement.getOriginDeposit().getId(),
+                        movement.getQuantity());
             }
+        } else {
+            applyStockEffects(movement.getType(), movement.getProduct(),
+                    movement.getOriginDeposit(), movement.getDestinationDeposit(), movement.getQuantity());
         }
+        movement.setStockApplied(!deferred);
+
+        return store(movement, isNew);
+    }
+
+    private StockMovement store(StockMovement movement, boolean isNew) {
+        StockMovement saved = stockMovementRepository.save(movement);
 
         auditLogService.saveLog(
                 "StockMovement",
@@ -169,34 +398,136 @@ public class StockMovementService {
         return saved;
     }
 
+    private void applyStockEffects(MovementType type, Product product, Deposit origin, Deposit destination, int quantity) {
+        switch (type) {
+            case ENTRY -> stockLedger.receive(product, destination, quantity);
+            case EXIT -> stockLedger.withdraw(product, origin, quantity);
+            case TRANSFER -> stockLedger.transfer(product, origin, destination, quantity);
+        }
+    }
+
+    // Deshace el efecto de un movimiento ya registrado (al editarlo o borrarlo)
+    private void revertStockEffects(StockMovementView previous) {
+        Product product = productRepository.getReferenceById(previous.productId());
+        Deposit origin = previous.originDepositId() != null
+                ? depositRepository.getReferenceById(previous.originDepositId()) : null;
+        Deposit destination = previous.destinationDepositId() != null
+                ? depositRepository.getReferenceById(previous.destinationDepositId()) : null;
+
+        switch (previous.type()) {
+            case ENTRY -> stockLedger.withdraw(product, destination, previous.quantity());
+            case EXIT -> stockLedger.receive(product, origin, previous.quantity());
+            case TRANSFER -> stockLedger.transfer(product, destination, origin, previous.quantity());
+        }
+    }
+
     public void delete(Long id) {
-        if (!stockMovementRepository.existsById(id)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock movement with id " + id + " not found.");
+        withStoredMovementLocks(id, List.of(), keys -> {
+            writeBehind.drain(keys);
+            return transactionTemplate.execute(status -> {
+                StockMovementView previous = findLocked(id, keys);
+                stockSnapshots.invalidateFrom(id);
+                revertStockEffects(previous);
+                stockMovementRepository.deleteById(id);
+
+                auditLogService.saveLog(
+                        "StockMovement",
+                        id,
+                        "DELETE",
+                        null
+                );
+                return null;
+            });
+        });
+    }
+
+    // === Locks de un movimiento ya guardado ===
+
+    // El movimiento pasó a otro producto o depósito mientras se esperaban los locks
+    private static final class StaleKeysException extends RuntimeException {
+
+        private final transient StockMovementView current;
+
+        StaleKeysException(StockMovementView current) {
+            super(null, null, false, false);
+            this.current = current;
+        }
+    }
+
+    /**
+     * Runs the action holding the given keys plus those of the stored movement. The keys
+     * are read before locking, so the action must re-read the movement with
+     * {@link #findLocked}: if a concurrent edit moved it to other keys meanwhile, its
+     * transaction rolls back and the action runs again under the new keys.
+     */
+    private <T> T withStoredMovementLocks(Long id, List<StockKey> extraKeys, Function<List<StockKey>, T> action) {
+        StockMovementView stored = findView(id);
+        while (true) {
+            List<StockKey> keys = new ArrayList<>(extraKeys);
+            keys.addAll(stockKeys(stored));
+            try {
+                return stockLocks.withLocks(keys, () -> action.apply(keys));
+            } catch (StaleKeysException ex) {
+                stored = ex.current;
+            }
         }
+    }
 
-        stockMovementRepository.deleteById(id);
+    // Relee el movimiento bajo los locks; 404 si otro lo borró mientras tanto
+    private StockMovementView findLocked(Long id, List<StockKey> locked) {
+        StockMovementView current = findView(id);
+        if (!locked.containsAll(stockKeys(current))) {
+            throw new StaleKeysException(current);
+        }
+        return current;
+    }
 
-        auditLogService.saveLog(
-                "StockMovement",
-                id,
-                "DELETE",
-                null
-        );
+    private StockMovementView findView(Long id) {
+        return stockMovementRepository.findViewById(id).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock movement with id " + id + " not found."));
     }
 
-    public List<StockMovement> findByType(MovementType type) {
-        return stockMovementRepository.findByType(type);
+    public CursorPage<StockMovementView> findByType(MovementType type, String cursor, Integer size) {
+        return page(cursor, size, (id, limit) -> stockMovementRepository.findPageByType(type, id, limit));
     }
 
-    public List<StockMovement> findByOriginDeposit(Long depositId) {
-        return stockMovementRepository.findByOriginDepositId(depositId);
+    public CursorPage<StockMovementView> findByOriginDeposit(Long depositId, String cursor, Integer size) {
+        return page(cursor, size, (id, limit) ->
+                stockMovementRepository.findPageByOriginDepositId(depositId, id, limit));
     }
 
-    public List<StockMovement> findByDestinationDeposit(Long depositId) {
-        return stockMovementRepository.findByDestinationDepositId(depositId);
+    public CursorPage<StockMovementView> findByDestinationDeposit(Long depositId, String cursor, Integer size) {
+        return page(cursor, size, (id, limit) ->
+                stockMovementRepository.findPageByDestinationDepositId(depositId, id, limit));
     }
 
-    public List<StockMovement> findTransfersBetweenDeposits(Long originId, Long destinationId) {
-        return stockMovementRepository.findByOriginDepositIdAndDestinationDepositId(originId, destinationId);
+    public CursorPage<StockMovementView> findTransfersBetweenDeposits(Long originId, Long destinationId, String cursor, Integer size) {
+        return page(cursor, size, (id, limit) ->
+                stockMovementRepository.findPageByOriginDepositIdAndDestinationDepositId(originId, destinationId, id, limit));
+    }
+
+    // === Paginación por keyset ===
+
+    @FunctionalInterface
+    private interface PageQuery {
+        List<StockMovementView> fetch(Long id, Limit limit);
+    }
+
+    /**
+     * Trae una fila extra para saber si hay otra página sin necesidad de un count(*).
+     * El orden es por id descendente: editar un movimiento no lo cambia de lugar.
+     */
+    private CursorPage<StockMovementView> page(String cursor, Integer size, PageQuery query) {
+        long after = (cursor == null || cursor.isBlank()) ? Long.MAX_VALUE : IdCursor.decode(cursor);
+        int pageSize = CursorPage.clampSize(size);
+
+        List<StockMovementView> rows = query.fetch(after, Limit.of(pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+
+        List<StockMovementView> items = rows.subList(0, pageSize);
+        StockMovementView last = items.get(pageSize - 1);
+        return new CursorPage<>(items, IdCursor.encode(last.id()));
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package uy.edu.ucu.inventario.service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -8,10 +9,17 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import uy.edu.ucu.inventario.availability.LongIntHashMap;
+import uy.edu.ucu.inventario.availability.StockAvailabilityIndex;
+import uy.edu.ucu.inventario.dto.StockAvailability;
 import uy.edu.ucu.inventario.entity.Deposit;
 import uy.edu.ucu.inventario.entity.Product;
 import uy.edu.ucu.inventario.entity.Stock;
+import uy.edu.ucu.inventario.lock.StockKey;
+import uy.edu.ucu.inventario.lock.StripedLockManager;
 import uy.edu.ucu.inventario.repository.StockRepository;
+import uy.edu.ucu.inventario.reservation.ReservationRegistry;
+import uy.edu.ucu.inventario.retry.RetryExecutor;
 
 /**
  * Service for managing product stock in deposits.
@@ -19,29 +27,68 @@ import uy.edu.ucu.inventario.repository.StockRepository;
 @Service
 public class StockService {
 
+    // Límites de la consulta de disponibilidad en bloque
+    private static final int MAX_AVAILABILITY_PRODUCTS = 500;
+    private static final int MAX_AVAILABILITY_DEPOSITS = 500;
+    private static final int MAX_AVAILABILITY_PAIRS = 10_000;
+
     private final StockRepository stockRepository;
     private final AuditLogService auditLogService;
     private final ProductService productService;
     private final DepositService depositService;
+    private final RetryExecutor retryExecutor;
+    private final StockWriteBehind writeBehind;
+    private final StockAvailabilityIndex availabilityIndex;
+    private final ReservationRegistry reservations;
+    private final StripedLockManager stockLocks;
 
     public StockService(
         StockRepository stockRepository,
         AuditLogService auditLogService,
         ProductService productService,
-        DepositService depositService
+        DepositService depositService,
+        RetryExecutor retryExecutor,
+        StockWriteBehind writeBehind,
+        StockAvailabilityIndex availabilityIndex,
+        ReservationRegistry reservations,
+        StripedLockManager stockLocks
     ) {
         this.stockRepository = stockRepository;
         this.auditLogService = auditLogService;
         this.productService = productService;
         this.depositService = depositService;
+        this.retryExecutor = retryExecutor;
+        this.writeBehind = writeBehind;
+        this.availabilityIndex = availabilityIndex;
+        this.reservations = reservations;
+        this.stockLocks = stockLocks;
     }
 
     public List<Stock> listAll() {
-        return stockRepository.findAll();
+        List<Stock> stocks = stockRepository.findAll();
+        if (writeBehind.pendingMovements() == 0) {
+            return stocks;
+        }
+        return stocks.stream().map(this::withPendingDelta).toList();
     }
 
     public Optional<Stock> getById(Long id) {
-        return stockRepository.findById(id);
+        return stockRepository.findById(id).map(this::withPendingDelta);
+    }
+
+    /**
+     * Copy of the row with the write-behind delta that has not been flushed yet. The
+     * managed entity is left untouched so the delta is never written through it.
+     */
+    private Stock withPendingDelta(Stock stock) {
+        int delta = writeBehind.pendingDelta(stock.getProduct().getId(), stock.getDeposit().getId());
+        if (delta == 0) {
+            return stock;
+        }
+        Stock view = new Stock(stock.getProduct(), stock.getDeposit(), stock.getQuantity() + delta);
+        view.setId(stock.getId());
+        view.setVersion(stock.getVersion());
+        return view;
     }
 
     public Stock save(Stock stock) {
@@ -60,6 +107,23 @@ public class StockService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock quantity must be specified and not negative.");
         }
 
+        long productId = stock.getProduct().getId();
+        long depositId = stock.getDeposit().getId();
+        List<StockKey> key = List.of(new StockKey(productId, depositId));
+
+        // Bajo el lock del par: ningún movimiento se cuela entre el commit y el índice
+        return stockLocks.withLocks(key, () -> {
+            // Una edición directa pisa la cantidad: primero se escribe lo que quedó pendiente
+            writeBehind.drain(key);
+
+            // En una sola transacción: la fila, sus contadores y la auditoría se confirman juntos
+            Stock saved = retryExecutor.run(() -> isNew ? create(stock) : update(stock));
+            availabilityIndex.set(productId, depositId, saved.getQuantity());
+            return saved;
+        });
+    }
+
+    private Stock create(Stock stock) {
         // --- Cargar producto y deposito completos para evitar errores de Hibernate ---
         Product fullProduct = productService.getById(stock.getProduct().getId())
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product not found"));
@@ -68,63 +132,155 @@ public class StockService {
         Deposit fullDeposit = depositService.getById(stock.getDeposit().getId())
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Deposit not found"));
         stock.setDeposit(fullDeposit);
-        
-        if (isNew) {
-            boolean existsInDeposit = stockRepository.existsByProductIdAndDepositId(
-                stock.getProduct().getId(), stock.getDeposit().getId()
-            );
-
-            if (existsInDeposit) {
-                throw new ResponseStatusException(
-                    HttpStatus.CONFLICT,
-                    "This product already has stock in the selected deposit."
-                );
-            }
 
-            productService.incrementDepositsCount(stock.getProduct());
-            depositService.incrementProductCount(stock.getDeposit());
+        if (availabilityIndex.contains(fullProduct.getId(), fullDeposit.getId())) {
+            throw new ResponseStatusException(
+                HttpStatus.CONFLICT,
+                "This product already has stock in the selected deposit."
+            );
         }
 
+        productService.incrementDepositsCount(stock.getProduct());
+        depositService.incrementProductCount(stock.getDeposit());
+
         Stock saved = stockRepository.save(stock);
 
         auditLogService.saveLog(
             "Stock",
             saved.getId(),
-            isNew ? "CREATE" : "UPDATE",
+            "CREATE",
             null
         );
 
         return saved;
     }
 
-    public void delete(Long id) {
-        Optional<Stock> stockOpt = stockRepository.findById(id);
+    /**
+     * Sets the quantity on the managed row, so a movement applied since it was read makes
+     * the version check fail and the update is retried on fresh data.
+     */
+    private Stock update(Stock changes) {
+        Stock stock = stockRepository.findById(changes.getId()).orElseThrow(() ->
+            new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock with id " + changes.getId() + " not found"));
 
-        if (stockOpt.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock with id " + id + " not found");
+        // Producto y depósito identifican la fila: no se cambian al editarla
+        if (!stock.getProduct().getId().equals(changes.getProduct().getId())
+                || !stock.getDeposit().getId().equals(changes.getDeposit().getId())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock product and deposit cannot be changed.");
         }
 
-        Stock stock = stockOpt.get();
+        stock.setQuantity(changes.getQuantity());
 
-        try {
-            stockRepository.deleteById(id);
+        auditLogService.saveLog(
+            "Stock",
+            stock.getId(),
+            "UPDATE",
+            null
+        );
 
-            productService.decrementDepositsCount(stock.getProduct());
-            depositService.decrementProductCount(stock.getDeposit());
+        return stock;
+    }
 
-            auditLogService.saveLog(
-                "Stock",
-                id,
-                "DELETE",
-                null
-            );
+    public void delete(Long id) {
+        Stock existing = stockRepository.findById(id).orElseThrow(() ->
+            new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock with id " + id + " not found"));
+        long productId = existing.getProduct().getId();
+        long depositId = existing.getDeposit().getId();
+        List<StockKey> key = List.of(new StockKey(productId, depositId));
 
-        } catch (DataIntegrityViolationException ex) {
-            throw new ResponseStatusException(
-                HttpStatus.CONFLICT,
-                "Cannot delete stock because it is referenced by other records",
-                ex
-            );
+        stockLocks.withLocks(key, () -> {
+            writeBehind.drain(key);
+
+            try {
+                retryExecutor.run(() -> {
+                    Stock stock = stockRepository.findById(id).orElseThrow(() ->
+                        new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock with id " + id + " not found"));
+
+                    stockRepository.delete(stock);
+
+                    productService.decrementDepositsCount(stock.getProduct());
+                    depositService.decrementProductCount(stock.getDeposit());
+
+                    auditLogService.saveLog(
+                        "Stock",
+                        id,
+                        "DELETE",
+                        null
+                    );
+                });
+            } catch (DataIntegrityViolationException ex) {
+                throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Cannot delete stock because it is referenced by other records",
+                    ex
+                );
+            }
+
+            availabilityIndex.remove(productId, depositId);
+            return null;
+        });
+    }
+
+    /**
+     * Quantity, reserved and available units for several pairs at once, served from the
+     * in-memory index without touching the database. With deposit ids it answers every
+     * requested pair (0 where there is no stock row); without them it lists the deposits
+     * that hold each product.
+     */
+    public List<StockAvailability> availability(List<Long> productIds, List<Long> depositIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one product id is required.");
+        }
+        if (productIds.size() > MAX_AVAILABILITY_PRODUCTS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "At most " + MAX_AVAILABILITY_PRODUCTS + " product ids per request.");
         }
+
+        List<StockAvailability> result = new ArrayList<>();
+
+        if (depositIds != null && !depositIds.isEmpty()) {
+            if (depositIds.size() > MAX_AVAILABILITY_DEPOSITS
+                    || (long) productIds.size() * depositIds.size() > MAX_AVAILABILITY_PAIRS) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_AVAILABILITY_PAIRS + " product/deposit pairs per request.");
+            }
+            for (Long productId : productIds) {
+                for (Long depositId : depositIds) {
+                    if (productId == null || depositId == null) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ids must not be empty.");
+                    }
+                    result.add(availabilityOf(productId, depositId,
+                        availabilityIndex.quantity(productId, depositId)));
+                }
+            }
+            return result;
+        }
+
+        // Un solo recorrido del índice, filtrando con un conjunto de ids sin boxing
+        LongIntHashMap wanted = new LongIntHashMap(productIds.size());
+        for (Long productId : productIds) {
+            if (productId == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ids must not be empty.");
+            }
+            if (productId > 0) {
+                wanted.put(productId, 1);
+            }
+        }
+        List<long[]> pairs = new ArrayList<>();
+        availabilityIndex.forEach((productId, depositId, quantity) -> {
+            if (wanted.containsKey(productId)) {
+                pairs.add(new long[] { productId, depositId, quantity });
+            }
+        });
+        // Las reservas se consultan fuera del lock de lectura del índice
+        for (long[] pair : pairs) {
+            result.add(availabilityOf(pair[0], pair[1], (int) pair[2]));
+        }
+        return result;
+    }
+
+    private StockAvailability availabilityOf(long productId, long depositId, int quantity) {
+        int reserved = reservations.reserved(productId, depositId);
+        return new StockAvailability(productId, depositId, quantity, reserved, Math.max(quantity - reserved, 0));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,238 @@
+package uy.edu.ucu.inventario.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import uy.edu.ucu.inventario.availability.StockAvailabilityIndex;
+import uy.edu.ucu.inventario.dto.StockAsOf;
+import uy.edu.ucu.inventario.dto.StockSnapshotInfo;
+import uy.edu.ucu.inventario.lock.StockKey;
+import uy.edu.ucu.inventario.lock.StripedLockManager;
+
+/**
+ * Answers "stock of product X in deposit Y at the end of day D" from periodic snapshots
+ * of the stock table: the nearest snapshot plus the movements recorded between it and D
+ * (added going forward, subtracted going back). Without snapshots the current stock is
+ * the starting point. Each lookup is a few index probes, however long the history is.
+ *
+ * A snapshot is cut while every stock lock is held, so no movement is half applied, and
+ * then copied inside the database in keyset batches from that REPEATABLE READ view while
+ * movements carry on. Movements are placed in time by their created_at column.
+ *
+ * Editing or deleting a movement drops the snapshots taken after it was recorded, so
+ * replay stays consistent with the movements as they are now. Direct edits of the stock
+ * table are not movements: they show up from the first snapshot taken after them.
+ */
+@Service
+public class StockSnapshotService {
+
+    private static final String INSERT_SNAPSHOT =
+            "INSERT INTO stock_snapshots (taken_at) VALUES (clock_timestamp()) RETURNING id, taken_at, row_count";
+
+    // Copia un lote sin pasar las filas por la aplicación y devuelve hasta dónde llegó
+    private static final String COPY_BATCH =
+            "WITH batch AS (SELECT id, product_id, deposit_id, quantity FROM stock WHERE id > ? ORDER BY id LIMIT ?), " +
+            "copied AS (INSERT INTO stock_snapshot_rows (snapshot_id, product_id, deposit_id, quantity) " +
+            "SELECT ?, product_id, deposit_id, quantity FROM batch) " +
+            "SELECT count(*) AS copied, max(id) AS last_id FROM batch";
+
+    private static final String ADD_PENDING =
+            "INSERT INTO stock_snapshot_rows (snapshot_id, product_id, deposit_id, quantity) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (snapshot_id, product_id, deposit_id) " +
+            "DO UPDATE SET quantity = stock_snapshot_rows.quantity + EXCLUDED.quantity";
+
+    private static final String COMPLETE =
+            "UPDATE stock_snapshots SET completed = TRUE, " +
+            "row_count = (SELECT count(*) FROM stock_snapshot_rows WHERE snapshot_id = ?) WHERE id = ?";
+
+    // Conserva las últimas N completas; las incompletas más viejas son de copias que no terminaron
+    private static final String PURGE =
+            "DELETE FROM stock_snapshots WHERE (completed AND id NOT IN " +
+            "(SELECT id FROM stock_snapshots WHERE completed ORDER BY taken_at DESC LIMIT ?)) " +
+            "OR (NOT completed AND taken_at < ?)";
+
+    private static final String INVALIDATE =
+            "DELETE FROM stock_snapshots WHERE taken_at > (SELECT created_at FROM stock_movements WHERE id = ?)";
+
+    private static final String LATEST_AT_OR_BEFORE =
+            "SELECT id, taken_at, row_count FROM stock_snapshots WHERE completed AND taken_at <= ? " +
+            "ORDER BY taken_at DESC LIMIT 1";
+
+    private static final String EARLIEST_AFTER =
+            "SELECT id, taken_at, row_count FROM stock_snapshots WHERE completed AND taken_at > ? " +
+            "ORDER BY taken_at LIMIT 1";
+
+    private static final String LIST =
+            "SELECT id, taken_at, row_count FROM stock_snapshots WHERE completed ORDER BY taken_at DESC";
+
+    private static final String SNAPSHOT_QUANTITY =
+            "SELECT quantity FROM stock_snapshot_rows WHERE snapshot_id = ? AND product_id = ? AND deposit_id = ?";
+
+    // Efecto neto sobre el par de los movimientos registrados en [desde, hasta)
+    private static final String TAIL =
+            "SELECT count(*) AS movements, " +
+            "COALESCE(SUM(CASE WHEN destination_deposit_id = ? THEN quantity ELSE 0 END), 0) " +
+            "- COALESCE(SUM(CASE WHEN origin_deposit_id = ? THEN quantity ELSE 0 END), 0) AS delta " +
+            "FROM stock_movements WHERE product_id = ? AND (origin_deposit_id = ? OR destination_deposit_id = ?) " +
+            "AND created_at >= ?";
+
+    private static final RowMapper<StockSnapshotInfo> SNAPSHOT_INFO = (rs, row) ->
+            new StockSnapshotInfo(rs.getLong("id"), rs.getTimestamp("taken_at").toInstant(), rs.getInt("row_count"));
+
+    private record Cut(StockSnapshotInfo snapshot, Map<StockKey, Integer> pending) {}
+
+    private record Tail(long movements, int delta) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate copyTransaction;
+    private final TransactionTemplate ownTransaction;
+    private final StripedLockManager stockLocks;
+    private final StockWriteBehind writeBehind;
+    private final StockAvailabilityIndex availabilityIndex;
+    private final int batchSize;
+    private final int retention;
+
+    public StockSnapshotService(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        StripedLockManager stockLocks,
+        StockWriteBehind writeBehind,
+        StockAvailabilityIndex availabilityIndex,
+        @Value("${inventario.stock.snapshot.batch-size:5000}") int batchSize,
+        @Value("${inventario.stock.snapshot.retention:30}") int retention
+    ) {
+        if (batchSize < 1 || retention < 1) {
+            throw new IllegalArgumentException("Snapshot batch size and retention must be positive.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.copyTransaction = new TransactionTemplate(transactionManager);
+        this.copyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stockLocks = stockLocks;
+        this.writeBehind = writeBehind;
+        this.availabilityIndex = availabilityIndex;
+        this.batchSize = batchSize;
+        this.retention = retention;
+    }
+
+    @Scheduled(cron = "${inventario.stock.snapshot.cron:0 0 3 * * *}")
+    public void scheduledSnapshot() {
+        createSnapshot();
+    }
+
+    /**
+     * Takes a snapshot of the stock table, including write-behind deltas not flushed yet.
+     */
+    public synchronized StockSnapshotInfo createSnapshot() {
+        StockSnapshotInfo info = copyTransaction.execute(status -> {
+            Cut cut = stockLocks.withAllLocks(() -> {
+                // Confirmada aparte, para que una edición posterior pueda invalidarla mientras se copia
+                StockSnapshotInfo snapshot = ownTransaction.execute(s ->
+                        jdbcTemplate.queryForObject(INSERT_SNAPSHOT, SNAPSHOT_INFO));
+
+                // La primera consulta fija la vista de la transacción: la copia no verá movimientos posteriores
+                jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                return new Cut(snapshot, writeBehind.pendingDeltas());
+            });
+            long snapshotId = cut.snapshot().id();
+
+            long lastId = 0;
+            int copied;
+            do {
+                Map<String, Object> batch = jdbcTemplate.queryForMap(COPY_BATCH, lastId, batchSize, snapshotId);
+                copied = ((Number) batch.get("copied")).intValue();
+                if (copied > 0) {
+                    lastId = ((Number) batch.get("last_id")).longValue();
+                }
+            } while (copied == batchSize);
+
+            if (!cut.pending().isEmpty()) {
+                List<Object[]> rows = cut.pending().entrySet().stream()
+                        .map(e -> new Object[] {snapshotId, e.getKey().productId(), e.getKey().depositId(), e.getValue()})
+                        .toList();
+                jdbcTemplate.batchUpdate(ADD_PENDING, rows);
+            }
+
+            jdbcTemplate.update(COMPLETE, snapshotId, snapshotId);
+            return jdbcTemplate.queryForObject("SELECT id, taken_at, row_count FROM stock_snapshots WHERE id = ?",
+                    SNAPSHOT_INFO, snapshotId);
+        });
+
+        ownTransaction.executeWithoutResult(status ->
+                jdbcTemplate.update(PURGE, retention, Timestamp.from(info.takenAt())));
+        return info;
+    }
+
+    public List<StockSnapshotInfo> listSnapshots() {
+        return jdbcTemplate.query(LIST, SNAPSHOT_INFO);
+    }
+
+    /**
+     * Drops the snapshots that already include the given movement. Call it in the
+     * transaction that edits or deletes the movement, before deleting it.
+     */
+    public void invalidateFrom(long movementId) {
+        jdbcTemplate.update(INVALIDATE, movementId);
+    }
+
+    public StockAsOf quantityAsOf(long productId, long depositId, LocalDate date) {
+        Instant endOfDay = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        Timestamp asOf = Timestamp.from(endOfDay);
+
+        List<StockSnapshotInfo> before = jdbcTemplate.query(LATEST_AT_OR_BEFORE, SNAPSHOT_INFO, asOf);
+        if (!before.isEmpty()) {
+            StockSnapshotInfo snapshot = before.get(0);
+            Tail tail = tail(productId, depositId, Timestamp.from(snapshot.takenAt()), asOf);
+            return new StockAsOf(productId, depositId, date,
+                    snapshotQuantity(snapshot.id(), productId, depositId) + tail.delta(),
+                    "snapshot", snapshot.id(), snapshot.takenAt(), tail.movements());
+        }
+
+        List<StockSnapshotInfo> after = jdbcTemplate.query(EARLIEST_AFTER, SNAPSHOT_INFO, asOf);
+        if (!after.isEmpty()) {
+            StockSnapshotInfo snapshot = after.get(0);
+            Tail tail = tail(productId, depositId, asOf, Timestamp.from(snapshot.takenAt()));
+            return new StockAsOf(productId, depositId, date,
+                    snapshotQuantity(snapshot.id(), productId, depositId) - tail.delta(),
+                    "snapshot", snapshot.id(), snapshot.takenAt(), tail.movements());
+        }
+
+        // Sin fotos: se parte del stock actual, leído junto con la cola bajo el lock del par
+        return stockLocks.withLocks(List.of(new StockKey(productId, depositId)), () -> {
+            int current = availabilityIndex.quantity(productId, depositId);
+            Tail tail = tail(productId, depositId, asOf, null);
+            return new StockAsOf(productId, depositId, date, current - tail.delta(),
+                    "live", null, null, tail.movements());
+        });
+    }
+
+    private int snapshotQuantity(long snapshotId, long productId, long depositId) {
+        List<Integer> quantity = jdbcTemplate.queryForList(SNAPSHOT_QUANTITY, Integer.class,
+                snapshotId, productId, depositId);
+        return quantity.isEmpty() ? 0 : quantity.get(0);
+    }
+
+    private Tail tail(long productId, long depositId, Timestamp from, Timestamp to) {
+        RowMapper<Tail> mapper = (rs, row) -> new Tail(rs.getLong("movements"), rs.getInt("delta"));
+        if (to == null) {
+            return jdbcTemplate.queryForObject(TAIL, mapper,
+                    depositId, depositId, productId, depositId, depositId, from);
+        }
+        return jdbcTemplate.queryForObject(TAIL + " AND created_at < ?", mapper,
+                depositId, depositId, productId, depositId, depositId, from, to);
+    }
+}
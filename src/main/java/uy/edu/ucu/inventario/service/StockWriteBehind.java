@@ -0,0 +1,332 @@
+package uy.edu.ucu.inventario.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import uy.edu.ucu.inventario.availability.StockAvailabilityIndex;
+import uy.edu.ucu.inventario.entity.StockMovement;
+import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.lock.StockKey;
+import uy.edu.ucu.inventario.lock.StripedLockManager;
+import uy.edu.ucu.inventario.repository.DepositRepository;
+import uy.edu.ucu.inventario.repository.ProductRepository;
+import uy.edu.ucu.inventario.reservation.ReservationRegistry;
+
+/**
+ * Optional write-behind for ENTRY and EXIT movements ({@code inventario.stock.write-behind.enabled}).
+ * The movement row is committed right away with {@code stock_applied = false}; its quantity
+ * change is added to an in-memory delta for the (product, deposit) pair, and all deltas are
+ * written through the {@link StockLedger} every flush interval, or sooner once enough movements
+ * are waiting, in one transaction that also marks those movements as applied.
+ *
+ * The unapplied movement rows are the durable copy of the buffer: whatever a crash leaves
+ * behind is re-applied on the next startup, which assumes a single application instance.
+ * Exits are checked against the stock plus its pending delta minus reservations, and
+ * {@link #pendingDelta} lets reads include what has not been flushed yet.
+ *
+ * Every change to a pair's delta happens under that pair's stock lock.
+ */
+@Component
+public class StockWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(StockWriteBehind.class);
+
+    private static final String UNAPPLIED_MOVEMENTS =
+            "SELECT id, type, product_id, origin_deposit_id, destination_deposit_id, quantity " +
+            "FROM stock_movements WHERE NOT stock_applied ORDER BY id";
+
+    private static final String MARK_APPLIED =
+            "UPDATE stock_movements SET stock_applied = TRUE WHERE id = ANY (?)";
+
+    // Delta acumulado de un par y los movimientos que lo componen
+    private static final class Pending {
+        int delta;
+        long[] movementIds = new long[8];
+        int count;
+
+        void add(long movementId, int change) {
+            if (count == movementIds.length) {
+                movementIds = Arrays.copyOf(movementIds, count * 2);
+            }
+            movementIds[count++] = movementId;
+            delta += change;
+        }
+    }
+
+    private final boolean enabled;
+    private final long flushIntervalMillis;
+    private final int maxPendingMovements;
+    private final StockLedger stockLedger;
+    private final StockAvailabilityIndex availabilityIndex;
+    private final ProductRepository productRepository;
+    private final DepositRepository depositRepository;
+    private final ReservationRegistry reservations;
+    private final StripedLockManager stockLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<StockKey, Pending> pending = new HashMap<>();
+    private int pendingMovements;
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ScheduledExecutorService flusher;
+
+    public StockWriteBehind(
+        @Value("${inventario.stock.write-behind.enabled:false}") boolean enabled,
+        @Value("${inventario.stock.write-behind.flush-interval:200ms}") Duration flushInterval,
+        @Value("${inventario.stock.write-behind.max-pending:1000}") int maxPendingMovements,
+        StockLedger stockLedger,
+        StockAvailabilityIndex availabilityIndex,
+        ProductRepository productRepository,
+        DepositRepository depositRepository,
+        ReservationRegistry reservations,
+        StripedLockManager stockLocks,
+        TransactionTemplate transactionTemplate,
+        JdbcTemplate jdbcTemplate
+    ) {
+        if (flushInterval.isNegative() || flushInterval.isZero() || maxPendingMovements < 1) {
+            throw new IllegalArgumentException("Write-behind flush interval and max pending must be positive.");
+        }
+        this.enabled = enabled;
+        this.flushIntervalMillis = flushInterval.toMillis();
+        this.maxPendingMovements = maxPendingMovements;
+        this.stockLedger = stockLedger;
+        this.availabilityIndex = availabilityIndex;
+        this.productRepository = productRepository;
+        this.depositRepository = depositRepository;
+        this.reservations = reservations;
+        this.stockLocks = stockLocks;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Re-applies movements left unapplied by a previous run, then starts the flusher.
+     * The replay runs even with write-behind disabled, so turning it off never strands a delta.
+     */
+    @PostConstruct
+    void start() {
+        replayUnapplied();
+
+        if (enabled) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stock-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+            flushQuietly();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Whether the movement's stock change can wait in the buffer. Transfers and edits are applied directly. */
+    public boolean accepts(StockMovement movement, boolean isNew) {
+        return enabled && isNew && movement.getType() != MovementType.TRANSFER;
+    }
+
+    /**
+     * Rejects an exit that the stock, including its unflushed delta, cannot cover once
+     * reservations are set aside. Caller holds the pair's lock.
+     */
+    public void checkAvailable(long productId, long depositId, int quantity) {
+        // El índice ya incluye los deltas pendientes
+        int available = availabilityIndex.quantity(productId, depositId) - reservations.reserved(productId, depositId);
+        if (available < quantity) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Insufficient stock of product " + productId + " in deposit " + depositId + ".");
+        }
+    }
+
+    /**
+     * Adds a committed, unapplied movement to its pair's delta. Caller holds the pair's lock.
+     */
+    public void enqueue(StockMovement movement) {
+        long productId = movement.getProduct().getId();
+        boolean entry = movement.getType() == MovementType.ENTRY;
+        long depositId = entry ? movement.getDestinationDeposit().getId() : movement.getOriginDeposit().getId();
+        int delta = entry ? movement.getQuantity() : -movement.getQuantity();
+
+        boolean flushNow;
+        synchronized (this) {
+            pending.computeIfAbsent(new StockKey(productId, depositId), k -> new Pending()).add(movement.getId(), delta);
+            flushNow = ++pendingMovements >= maxPendingMovements;
+        }
+        availabilityIndex.add(productId, depositId, delta);
+
+        if (flushNow && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    public synchronized int pendingDelta(long productId, long depositId) {
+        Pending entry = pending.get(new StockKey(productId, depositId));
+        return entry != null ? entry.delta : 0;
+    }
+
+    /** Non-zero unflushed deltas of every pair. */
+    public synchronized Map<StockKey, Integer> pendingDeltas() {
+        Map<StockKey, Integer> deltas = new HashMap<>();
+        pending.forEach((key, entry) -> {
+            if (entry.delta != 0) {
+                deltas.put(key, entry.delta);
+            }
+        });
+        return deltas;
+    }
+
+    public synchronized int pendingMovements() {
+        return pendingMovements;
+    }
+
+    /**
+     * Writes the pending deltas of the given pairs now, before they are changed directly.
+     * Must be called outside a transaction: the flush commits on its own.
+     */
+    public void drain(Collection<StockKey> keys) {
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+        }
+        stockLocks.withLocks(keys, () -> {
+            flushLocked(keys);
+            return null;
+        });
+    }
+
+    public void flush() {
+        List<StockKey> keys;
+        synchronized (this) {
+            keys = new ArrayList<>(pending.keySet());
+        }
+        if (!keys.isEmpty()) {
+            drain(keys);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            // Los deltas siguen en memoria y en el diario; se reintenta en la próxima vuelta
+            log.warn("Stock write-behind flush failed, will retry: {}", ex.getMessage());
+        }
+    }
+
+    private void flushLocked(Collection<StockKey> keys) {
+        Map<StockKey, Pending> batch = new LinkedHashMap<>();
+        synchronized (this) {
+            for (StockKey key : keys) {
+                Pending entry = pending.get(key);
+                if (entry != null) {
+                    batch.put(key, entry);
+                }
+            }
+        }
+
+        int total = 0;
+        for (Pending entry : batch.values()) {
+            total += entry.count;
+        }
+
+        if (total > 0) {
+            long[] movementIds = new long[total];
+            int offset = 0;
+            for (Pending entry : batch.values()) {
+                System.arraycopy(entry.movementIds, 0, movementIds, offset, entry.count);
+                offset += entry.count;
+            }
+
+            // Un UPDATE por par, sin importar cuántos movimientos lo formaron
+            transactionTemplate.executeWithoutResult(status -> {
+                batch.forEach((key, entry) -> applyDelta(key, entry.delta));
+                markApplied(movementIds);
+            });
+        }
+
+        synchronized (this) {
+            for (Map.Entry<StockKey, Pending> applied : batch.entrySet()) {
+                pending.remove(applied.getKey());
+                pendingMovements -= applied.getValue().count;
+            }
+        }
+    }
+
+    private void replayUnapplied() {
+        Map<StockKey, Integer> deltas = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>();
+        jdbcTemplate.query(UNAPPLIED_MOVEMENTS, rs -> {
+            long productId = rs.getLong("product_id");
+            int quantity = rs.getInt("quantity");
+            long origin = rs.getLong("origin_deposit_id");
+            boolean hasOrigin = !rs.wasNull();
+            long destination = rs.getLong("destination_deposit_id");
+            boolean hasDestination = !rs.wasNull();
+
+            MovementType type = MovementType.valueOf(rs.getString("type"));
+            if (type != MovementType.ENTRY && hasOrigin) {
+                deltas.merge(new StockKey(productId, origin), -quantity, Integer::sum);
+            }
+            if (type != MovementType.EXIT && hasDestination) {
+                deltas.merge(new StockKey(productId, destination), quantity, Integer::sum);
+            }
+            ids.add(rs.getLong("id"));
+        });
+
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            deltas.forEach(this::applyDelta);
+            markApplied(ids.stream().mapToLong(Long::longValue).toArray());
+        });
+        log.info("Re-applied {} stock movements left pending by write-behind", ids.size());
+    }
+
+    private void applyDelta(StockKey key, int delta) {
+        stockLedger.applyDelta(productRepository.getReferenceById(key.productId()),
+                depositRepository.getReferenceById(key.depositId()), delta);
+    }
+
+    private void markApplied(long[] ids) {
+        Long[] boxed = Arrays.stream(ids).boxed().toArray(Long[]::new);
+        jdbcTemplate.update(MARK_APPLIED, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", boxed)));
+    }
+}
@@ -0,0 +1,22 @@
+-- Líneas de venta: qué producto salió de qué depósito, cuántas unidades y a qué precio.
+-- El precio queda fijado al momento de la venta, así los reportes no dependen del precio actual.
+-- sale_products se mantiene para las ventas anteriores y los clientes que sólo leen productos.
+
+CREATE SEQUENCE sale_items_seq INCREMENT BY 50;
+
+CREATE TABLE sale_items (
+    id         BIGINT         PRIMARY KEY DEFAULT nextval('sale_items_seq'),
+    sale_id    BIGINT         NOT NULL,
+    product_id BIGINT         NOT NULL,
+    deposit_id BIGINT         NOT NULL,
+    quantity   INTEGER        NOT NULL,
+    unit_price NUMERIC(38, 2) NOT NULL,
+    CONSTRAINT fk_sale_items_sale FOREIGN KEY (sale_id) REFERENCES sales (id) ON DELETE CASCADE,
+    CONSTRAINT fk_sale_items_product FOREIGN KEY (product_id) REFERENCES products (id),
+    CONSTRAINT fk_sale_items_deposit FOREIGN KEY (deposit_id) REFERENCES deposits (id),
+    CONSTRAINT ck_sale_items_quantity CHECK (quantity > 0),
+    CONSTRAINT ck_sale_items_unit_price CHECK (unit_price >= 0)
+);
+
+CREATE INDEX ix_sale_items_sale ON sale_items (sale_id);
+CREATE INDEX ix_sale_items_product ON sale_items (product_id);
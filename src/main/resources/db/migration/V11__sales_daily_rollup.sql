@@ -0,0 +1,19 @@
+-- Ventas agregadas por día, medio de pago y revendedor. Se mantiene con deltas en cada
+-- alta, edición y baja de venta; las estadísticas se responden desde acá sin recorrer sales.
+-- Sin revendedor se guarda '' (la columna es parte de la clave primaria).
+-- Las ventas sin fecha no entran: no tienen día.
+
+CREATE TABLE sales_daily_rollup (
+    day            DATE           NOT NULL,
+    payment_method VARCHAR(255)   NOT NULL,
+    reseller       VARCHAR(100)   NOT NULL,
+    sales_count    BIGINT         NOT NULL,
+    total          NUMERIC(38, 2) NOT NULL,
+    CONSTRAINT pk_sales_daily_rollup PRIMARY KEY (day, payment_method, reseller)
+);
+
+INSERT INTO sales_daily_rollup (day, payment_method, reseller, sales_count, total)
+SELECT CAST(date AS DATE), payment_method, COALESCE(reseller, ''), count(*), COALESCE(sum(total), 0)
+FROM sales
+WHERE date IS NOT NULL
+GROUP BY 1, 2, 3;
@@ -0,0 +1,13 @@
+-- Los listados de movimientos paginan por id descendente en lugar de (date, id): la fecha
+-- cambia al editar un movimiento y el id no. El listado sin filtro recorre la clave primaria.
+-- ix_stock_movements_origin_date_id queda: lo usa ReplenishmentPlanner (salidas por depósito y día).
+
+DROP INDEX IF EXISTS ix_stock_movements_date_id;
+DROP INDEX IF EXISTS ix_stock_movements_type_date_id;
+DROP INDEX IF EXISTS ix_stock_movements_destination_date_id;
+DROP INDEX IF EXISTS ix_stock_movements_origin_destination;
+
+CREATE INDEX IF NOT EXISTS ix_stock_movements_type_id ON stock_movements (type, id DESC);
+CREATE INDEX IF NOT EXISTS ix_stock_movements_origin_id ON stock_movements (origin_deposit_id, id DESC);
+CREATE INDEX IF NOT EXISTS ix_stock_movements_destination_id ON stock_movements (destination_deposit_id, id DESC);
+CREATE INDEX IF NOT EXISTS ix_stock_movements_origin_destination_id ON stock_movements (origin_deposit_id, destination_deposit_id, id DESC);
@@ -0,0 +1,124 @@
+-- Esquema base, equivalente al que generaba Hibernate con ddl-auto=update.
+-- En bases existentes Flyway lo toma como baseline (spring.flyway.baseline-on-migrate) y no lo ejecuta.
+
+CREATE TABLE brands (
+    id                       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name                     VARCHAR(100) NOT NULL,
+    description              VARCHAR(255),
+    country_of_origin        VARCHAR(100),
+    created_at               TIMESTAMP(6) NOT NULL,
+    associated_product_count INTEGER      NOT NULL
+);
+
+CREATE TABLE categories (
+    id                       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name                     VARCHAR(100) NOT NULL,
+    associated_product_count INTEGER      NOT NULL
+);
+
+CREATE TABLE deposits (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name            VARCHAR(100) NOT NULL,
+    location        VARCHAR(255),
+    description     VARCHAR(255),
+    product_count   INTEGER      NOT NULL,
+    associated_date TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE providers (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name            VARCHAR(100) NOT NULL,
+    email           VARCHAR(100),
+    phone           VARCHAR(50),
+    address         VARCHAR(255),
+    associated_date DATE         NOT NULL
+);
+
+CREATE TABLE products (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name              VARCHAR(100) NOT NULL,
+    description       VARCHAR(255),
+    purchase_currency VARCHAR(255),
+    purchase_price    NUMERIC(38, 2),
+    sale_currency     VARCHAR(255),
+    sale_price        NUMERIC(38, 2),
+    brand_id          BIGINT       NOT NULL,
+    category_id       BIGINT       NOT NULL,
+    deposits_count    INTEGER      NOT NULL,
+    CONSTRAINT fk_products_brand FOREIGN KEY (brand_id) REFERENCES brands (id),
+    CONSTRAINT fk_products_category FOREIGN KEY (category_id) REFERENCES categories (id)
+);
+
+CREATE TABLE product_deposit (
+    product_id BIGINT NOT NULL,
+    deposit_id BIGINT NOT NULL,
+    PRIMARY KEY (deposit_id, product_id),
+    CONSTRAINT fk_product_deposit_product FOREIGN KEY (product_id) REFERENCES products (id),
+    CONSTRAINT fk_product_deposit_deposit FOREIGN KEY (deposit_id) REFERENCES deposits (id)
+);
+
+CREATE TABLE ussario (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name VARCHAR(50)  NOT NULL,
+    last_name  VARCHAR(50)  NOT NULL,
+    email      VARCHAR(100) NOT NULL UNIQUE,
+    password   VARCHAR(100) NOT NULL,
+    phone      VARCHAR(20)
+);
+
+CREATE TABLE users (
+    user_id    BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name VARCHAR(255),
+    last_name  VARCHAR(255),
+    email      VARCHAR(255),
+    password   VARCHAR(255)
+);
+
+CREATE TABLE stock (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    product_id BIGINT  NOT NULL,
+    deposit_id BIGINT  NOT NULL,
+    quantity   INTEGER NOT NULL,
+    CONSTRAINT fk_stock_product FOREIGN KEY (product_id) REFERENCES products (id),
+    CONSTRAINT fk_stock_deposit FOREIGN KEY (deposit_id) REFERENCES deposits (id)
+);
+
+CREATE TABLE stock_movements (
+    id                     BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type                   VARCHAR(255) NOT NULL CHECK (type IN ('ENTRY', 'EXIT', 'TRANSFER')),
+    product_id             BIGINT       NOT NULL,
+    origin_deposit_id      BIGINT,
+    destination_deposit_id BIGINT,
+    quantity               INTEGER      NOT NULL,
+    date                   DATE         NOT NULL,
+    user_id                BIGINT,
+    CONSTRAINT fk_stock_movements_product FOREIGN KEY (product_id) REFERENCES products (id),
+    CONSTRAINT fk_stock_movements_origin FOREIGN KEY (origin_deposit_id) REFERENCES deposits (id),
+    CONSTRAINT fk_stock_movements_destination FOREIGN KEY (destination_deposit_id) REFERENCES deposits (id),
+    CONSTRAINT fk_stock_movements_user FOREIGN KEY (user_id) REFERENCES ussario (id)
+);
+
+CREATE TABLE sales (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    date           TIMESTAMP(6),
+    total          NUMERIC(38, 2),
+    payment_method VARCHAR(255) NOT NULL CHECK (payment_method IN ('CASH', 'CARD', 'TRANSFER')),
+    reseller       VARCHAR(100)
+);
+
+CREATE TABLE sale_products (
+    sale_id    BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    CONSTRAINT fk_sale_products_sale FOREIGN KEY (sale_id) REFERENCES sales (id),
+    CONSTRAINT fk_sale_products_product FOREIGN KEY (product_id) REFERENCES products (id)
+);
+
+CREATE TABLE audit_logs (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    operation   VARCHAR(50)  NOT NULL,
+    entity_name VARCHAR(100) NOT NULL,
+    entity_id   BIGINT       NOT NULL,
+    timestamp   TIMESTAMP(6) NOT NULL,
+    username    VARCHAR(100),
+    details     VARCHAR(500)
+);
@@ -0,0 +1,37 @@
+-- Índices elegidos según las consultas calientes de los repositorios.
+-- Los findByNameIgnoreCase de Spring Data generan "upper(name) = upper(?)", por eso los índices funcionales usan upper().
+
+-- StockRepository.existsByProductIdAndDepositId / findByProductIdAndDepositId.
+-- Único: un producto tiene a lo sumo una fila de stock por depósito.
+CREATE UNIQUE INDEX IF NOT EXISTS ux_stock_product_deposit ON stock (product_id, deposit_id);
+CREATE INDEX IF NOT EXISTS ix_stock_deposit ON stock (deposit_id);
+
+-- Listados paginados de movimientos (keyset sobre date, id) y sus variantes filtradas.
+-- El índice origen/destino también cubre findByOriginDepositIdAndDestinationDepositId.
+CREATE INDEX IF NOT EXISTS ix_stock_movements_date_id ON stock_movements (date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_stock_movements_type_date_id ON stock_movements (type, date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_stock_movements_origin_date_id ON stock_movements (origin_deposit_id, date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_stock_movements_destination_date_id ON stock_movements (destination_deposit_id, date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_stock_movements_origin_destination ON stock_movements (origin_deposit_id, destination_deposit_id, date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_stock_movements_product ON stock_movements (product_id);
+
+-- ProductRepository.existsByBrandId / existsByCategoryId
+CREATE INDEX IF NOT EXISTS ix_products_brand ON products (brand_id);
+CREATE INDEX IF NOT EXISTS ix_products_category ON products (category_id);
+
+-- findByNameIgnoreCase
+CREATE INDEX IF NOT EXISTS ix_products_upper_name ON products (upper(name));
+CREATE INDEX IF NOT EXISTS ix_brands_upper_name ON brands (upper(name));
+CREATE INDEX IF NOT EXISTS ix_categories_upper_name ON categories (upper(name));
+CREATE INDEX IF NOT EXISTS ix_deposits_upper_name ON deposits (upper(name));
+CREATE INDEX IF NOT EXISTS ix_providers_upper_name ON providers (upper(name));
+
+-- Grafo Product.details (depósitos de cada producto) y detalle de ventas
+CREATE INDEX IF NOT EXISTS ix_product_deposit_product ON product_deposit (product_id);
+CREATE INDEX IF NOT EXISTS ix_sale_products_sale ON sale_products (sale_id);
+CREATE INDEX IF NOT EXISTS ix_sale_products_product ON sale_products (product_id);
+
+-- Listado filtrado de ventas (orden por id descendente)
+CREATE INDEX IF NOT EXISTS ix_sales_date ON sales (date);
+CREATE INDEX IF NOT EXISTS ix_sales_payment_method_id ON sales (payment_method, id DESC);
+CREATE INDEX IF NOT EXISTS ix_sales_reseller_id ON sales (reseller, id DESC);
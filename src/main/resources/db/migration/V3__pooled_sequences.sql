@@ -0,0 +1,25 @@
+-- Ids por secuencia para las entidades con mucha escritura: con IDENTITY Hibernate no puede
+-- agrupar inserts en batch porque necesita el id generado de cada fila.
+-- INCREMENT BY 50 coincide con allocationSize: Hibernate (optimizador pooled) usa el rango (valor - 49 .. valor),
+-- por eso cada secuencia arranca en MAX(id) + 50.
+-- Las columnas dejan de ser IDENTITY y toman el default de la secuencia para los inserts hechos por SQL.
+
+CREATE SEQUENCE IF NOT EXISTS stock_movements_seq INCREMENT BY 50;
+SELECT setval('stock_movements_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM stock_movements), false);
+ALTER TABLE stock_movements ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE stock_movements ALTER COLUMN id SET DEFAULT nextval('stock_movements_seq');
+
+CREATE SEQUENCE IF NOT EXISTS audit_logs_seq INCREMENT BY 50;
+SELECT setval('audit_logs_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM audit_logs), false);
+ALTER TABLE audit_logs ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE audit_logs ALTER COLUMN id SET DEFAULT nextval('audit_logs_seq');
+
+CREATE SEQUENCE IF NOT EXISTS sales_seq INCREMENT BY 50;
+SELECT setval('sales_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM sales), false);
+ALTER TABLE sales ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE sales ALTER COLUMN id SET DEFAULT nextval('sales_seq');
+
+CREATE SEQUENCE IF NOT EXISTS stock_seq INCREMENT BY 50;
+SELECT setval('stock_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM stock), false);
+ALTER TABLE stock ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE stock ALTER COLUMN id SET DEFAULT nextval('stock_seq');
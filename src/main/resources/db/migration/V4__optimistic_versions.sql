@@ -0,0 +1,6 @@
+-- Columna de versión para el bloqueo optimista de Hibernate (@Version).
+-- Las filas existentes arrancan en 0; el DEFAULT cubre también los INSERT por SQL directo.
+
+ALTER TABLE products ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE deposits ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE stock    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- Diario del modo write-behind: un movimiento se guarda con stock_applied = false y su
+-- delta se aplica a stock más tarde, en la misma transacción que lo marca como aplicado.
+-- Al arrancar se reaplican los que quedaron pendientes. Las filas existentes ya están aplicadas.
+
+ALTER TABLE stock_movements ADD COLUMN stock_applied BOOLEAN NOT NULL DEFAULT TRUE;
+
+-- Normalmente vacío: el índice parcial sólo contiene los pendientes
+CREATE INDEX idx_stock_movements_pending ON stock_movements (id) WHERE NOT stock_applied;
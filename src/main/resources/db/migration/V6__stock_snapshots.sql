@@ -0,0 +1,30 @@
+-- Stock a una fecha: fotos periódicas de la tabla stock más la cola de movimientos posteriores.
+
+-- Instante de alta de cada movimiento (no lo mapea la entidad: lo pone la base).
+-- Los movimientos previos quedan al inicio de su día.
+ALTER TABLE stock_movements ADD COLUMN created_at TIMESTAMPTZ;
+UPDATE stock_movements SET created_at = date::timestamptz;
+ALTER TABLE stock_movements ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE stock_movements ALTER COLUMN created_at SET DEFAULT clock_timestamp();
+
+-- La cola de un producto entre dos instantes; reemplaza al índice sólo por producto
+CREATE INDEX IF NOT EXISTS ix_stock_movements_product_created ON stock_movements (product_id, created_at);
+DROP INDEX IF EXISTS ix_stock_movements_product;
+
+-- completed = false mientras se copia; las consultas sólo usan fotos completas
+CREATE TABLE stock_snapshots (
+    id        BIGSERIAL PRIMARY KEY,
+    taken_at  TIMESTAMPTZ NOT NULL,
+    row_count INTEGER NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+CREATE INDEX ix_stock_snapshots_taken_at ON stock_snapshots (taken_at) WHERE completed;
+
+CREATE TABLE stock_snapshot_rows (
+    snapshot_id BIGINT NOT NULL REFERENCES stock_snapshots (id) ON DELETE CASCADE,
+    product_id  BIGINT NOT NULL,
+    deposit_id  BIGINT NOT NULL,
+    quantity    INTEGER NOT NULL,
+    PRIMARY KEY (snapshot_id, product_id, deposit_id)
+);
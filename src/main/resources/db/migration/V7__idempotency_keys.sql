@@ -0,0 +1,14 @@
+-- Respuestas guardadas por Idempotency-Key: un reintento del mismo POST recibe la
+-- respuesta original en lugar de crear otra fila. Se purgan al vencer.
+
+CREATE TABLE idempotency_keys (
+    scope         VARCHAR(32)  NOT NULL,
+    idem_key      VARCHAR(255) NOT NULL,
+    request_hash  BYTEA        NOT NULL,
+    status_code   SMALLINT     NOT NULL,
+    response_body BYTEA        NOT NULL,
+    expires_at    TIMESTAMPTZ  NOT NULL,
+    PRIMARY KEY (scope, idem_key)
+);
+
+CREATE INDEX ix_idempotency_keys_expires_at ON idempotency_keys (expires_at);
@@ -0,0 +1,15 @@
+-- Umbrales de reposición: por producto en un depósito, o por producto sobre el total de
+-- todos sus depósitos (deposit_id nulo). Hay alerta cuando la cantidad queda por debajo.
+
+CREATE TABLE stock_thresholds (
+    product_id   BIGINT  NOT NULL,
+    deposit_id   BIGINT,
+    min_quantity INTEGER NOT NULL,
+    CONSTRAINT fk_stock_thresholds_product FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE CASCADE,
+    CONSTRAINT fk_stock_thresholds_deposit FOREIGN KEY (deposit_id) REFERENCES deposits (id) ON DELETE CASCADE,
+    CONSTRAINT ck_stock_thresholds_min_quantity CHECK (min_quantity > 0)
+);
+
+-- Un umbral por par y uno general por producto
+CREATE UNIQUE INDEX ux_stock_thresholds_pair ON stock_thresholds (product_id, deposit_id) WHERE deposit_id IS NOT NULL;
+CREATE UNIQUE INDEX ux_stock_thresholds_product ON stock_thresholds (product_id) WHERE deposit_id IS NULL;
@@ -0,0 +1,40 @@
+-- Planificador de reposición: demanda diaria (salidas) por depósito y producto, y
+-- sugerencias de compra calculadas a partir de ella. Cada corrida sólo vuelve a agregar
+-- los días desde la corrida anterior; los días más viejos que la ventana se descartan.
+
+CREATE TABLE replenishment_runs (
+    id           BIGSERIAL   PRIMARY KEY,
+    started_at   TIMESTAMPTZ NOT NULL,
+    finished_at  TIMESTAMPTZ,
+    from_day     DATE        NOT NULL,
+    full_rebuild BOOLEAN     NOT NULL,
+    deposits     INTEGER     NOT NULL DEFAULT 0,
+    suggestions  INTEGER     NOT NULL DEFAULT 0
+);
+
+CREATE INDEX ix_replenishment_runs_finished ON replenishment_runs (started_at) WHERE finished_at IS NOT NULL;
+
+CREATE TABLE replenishment_demand (
+    deposit_id BIGINT  NOT NULL,
+    product_id BIGINT  NOT NULL,
+    day        DATE    NOT NULL,
+    quantity   INTEGER NOT NULL,
+    PRIMARY KEY (deposit_id, product_id, day)
+);
+
+CREATE TABLE replenishment_suggestions (
+    deposit_id         BIGINT        NOT NULL,
+    product_id         BIGINT        NOT NULL,
+    run_id             BIGINT        NOT NULL,
+    avg_daily_demand   NUMERIC(12, 3) NOT NULL,
+    quantity           INTEGER       NOT NULL,
+    days_of_cover      NUMERIC(12, 1) NOT NULL,
+    suggested_quantity INTEGER       NOT NULL,
+    PRIMARY KEY (deposit_id, product_id),
+    CONSTRAINT fk_replenishment_suggestions_deposit FOREIGN KEY (deposit_id) REFERENCES deposits (id) ON DELETE CASCADE,
+    CONSTRAINT fk_replenishment_suggestions_product FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE CASCADE
+);
+
+-- Listado de lo que hay que reponer, lo más urgente (menos días de cobertura) primero
+CREATE INDEX ix_replenishment_suggestions_cover ON replenishment_suggestions (days_of_cover, deposit_id, product_id)
+    WHERE suggested_quantity > 0;
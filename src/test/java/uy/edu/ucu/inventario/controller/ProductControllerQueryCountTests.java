@@ -0,0 +1,119 @@
+package uy.edu.ucu.inventario.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import jakarta.persistence.EntityManagerFactory;
+import uy.edu.ucu.BackApplication;
+import uy.edu.ucu.inventario.entity.Brand;
+import uy.edu.ucu.inventario.entity.Category;
+import uy.edu.ucu.inventario.entity.Deposit;
+import uy.edu.ucu.inventario.entity.Product;
+import uy.edu.ucu.inventario.repository.BrandRepository;
+import uy.edu.ucu.inventario.repository.CategoryRepository;
+import uy.edu.ucu.inventario.repository.DepositRepository;
+import uy.edu.ucu.inventario.repository.ProductRepository;
+
+/**
+ * Checks that the product endpoints run a fixed number of SQL statements,
+ * whatever the size of the catalog.
+ */
+@SpringBootTest(classes = BackApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+class ProductControllerQueryCountTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private DepositRepository depositRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void listRunsTheSameStatementsWhateverTheCatalogSize() throws Exception {
+        createProducts(5);
+        long small = statementsFor("/api/products");
+
+        createProducts(50);
+        long large = statementsFor("/api/products");
+
+        assertThat(small).isEqualTo(1);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void detailLoadsProductWithAssociationsInOneStatement() throws Exception {
+        Long id = createProducts(1);
+
+        assertThat(statementsFor("/api/products/" + id)).isEqualTo(1);
+    }
+
+    private long statementsFor(String url) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Cada producto con marca, categoría y dos depósitos propios
+    private Long createProducts(int count) {
+        Long lastId = null;
+        for (int i = 0; i < count; i++) {
+            String suffix = UUID.randomUUID().toString();
+
+            Brand brand = new Brand();
+            brand.setName("brand-" + suffix);
+            brand = brandRepository.save(brand);
+
+            Category category = categoryRepository.save(new Category("category-" + suffix));
+
+            Deposit first = new Deposit();
+            first.setName("deposit-a-" + suffix);
+            Deposit second = new Deposit();
+            second.setName("deposit-b-" + suffix);
+
+            Product product = new Product("product-" + suffix, null, null, null, brand, category);
+            product.setDeposits(new HashSet<>(Set.of(depositRepository.save(first), depositRepository.save(second))));
+            lastId = productRepository.save(product).getId();
+        }
+        return lastId;
+    }
+}
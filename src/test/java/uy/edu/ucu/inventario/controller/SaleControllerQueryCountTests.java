@@ -0,0 +1,124 @@
+package uy.edu.ucu.inventario.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static uy.edu.ucu.inventario.support.TestFixtures.ref;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import jakarta.persistence.EntityManagerFactory;
+import uy.edu.ucu.BackApplication;
+import uy.edu.ucu.inventario.entity.Deposit;
+import uy.edu.ucu.inventario.entity.Product;
+import uy.edu.ucu.inventario.entity.Sale;
+import uy.edu.ucu.inventario.entity.SaleItem;
+import uy.edu.ucu.inventario.entity.StockMovement;
+import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.enums.PaymentMethod;
+import uy.edu.ucu.inventario.service.SaleService;
+import uy.edu.ucu.inventario.service.StockMovementService;
+import uy.edu.ucu.inventario.support.TestFixtures;
+
+/**
+ * Checks that a page of sales loads the products and items of all its sales in one
+ * statement each, instead of one per sale.
+ */
+@SpringBootTest(classes = BackApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SaleControllerQueryCountTests {
+
+    private static final int SALES = 500;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    private String reseller;
+    private Long saleId;
+
+    // Mitad ventas con líneas (checkout) y mitad sólo con productos, todas del mismo revendedor
+    @BeforeAll
+    void createSales() {
+        TestFixtures.Catalog catalog = fixtures.catalog("count", 4, 1, new BigDecimal("5.00"));
+        reseller = "count-" + catalog.suffix();
+        List<Product> products = catalog.products();
+        Deposit deposit = catalog.deposit(0);
+        for (Product product : products) {
+            stockMovementService.save(new StockMovement(MovementType.ENTRY, ref(product), null, ref(deposit), SALES));
+        }
+
+        for (int i = 0; i < SALES; i++) {
+            Sale sale = new Sale();
+            sale.setPaymentMethod(PaymentMethod.CARD);
+            sale.setReseller(reseller);
+            Product first = products.get(i % products.size());
+            Product second = products.get((i + 1) % products.size());
+            if (i % 2 == 0) {
+                sale.getItems().add(new SaleItem(ref(first), ref(deposit), 1, null));
+                sale.getItems().add(new SaleItem(ref(second), ref(deposit), 1, null));
+            } else {
+                sale.setTotal(new BigDecimal("10.00"));
+                sale.setProducts(List.of(ref(first), ref(second)));
+            }
+            saleId = saleService.save(sale).getId();
+        }
+    }
+
+    @Test
+    void pageOfFiveHundredSalesRunsFourStatements() throws Exception {
+        Statistics statistics = statistics();
+        mockMvc.perform(get("/api/sales").param("reseller", reseller).param("size", String.valueOf(SALES)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(SALES))
+                .andExpect(jsonPath("$.data[0].product.length()").value(2));
+
+        // La página, el conteo, los productos y las líneas de las 500 ventas
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    void detailRunsThreeStatements() throws Exception {
+        Statistics statistics = statistics();
+        mockMvc.perform(get("/api/sales/" + saleId)).andExpect(status().isOk());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+}
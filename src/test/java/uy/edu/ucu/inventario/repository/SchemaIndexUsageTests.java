@@ -0,0 +1,92 @@
+package uy.edu.ucu.inventario.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import uy.edu.ucu.BackApplication;
+
+/**
+ * Runs EXPLAIN over the SQL behind the hot repository lookups and fails if any of them
+ * can only be answered with a sequential scan, i.e. if the Flyway migrations miss an index.
+ *
+ * Sequential scans are disabled for the session, so the planner falls back to one only
+ * when no usable index exists, regardless of how small the test tables are.
+ */
+@SpringBootTest(classes = BackApplication.class)
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+class SchemaIndexUsageTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        // StockRepository.existsByProductIdAndDepositId / findByProductIdAndDepositId
+        "SELECT s.id FROM stock s WHERE s.product_id = 1 AND s.deposit_id = 1 FETCH FIRST 1 ROWS ONLY",
+        "SELECT s.id, s.deposit_id, s.product_id, s.quantity FROM stock s WHERE s.product_id = 1 AND s.deposit_id = 1",
+        // StockMovementRepository.findPageByOriginDepositIdAndDestinationDepositId
+        "SELECT m.id FROM stock_movements m WHERE m.origin_deposit_id = 1 AND m.destination_deposit_id = 2 "
+            + "AND m.id < 100 ORDER BY m.id DESC FETCH FIRST 51 ROWS ONLY",
+        // ProductRepository.existsByBrandId / existsByCategoryId
+        "SELECT p.id FROM products p WHERE p.brand_id = 1 FETCH FIRST 1 ROWS ONLY",
+        "SELECT p.id FROM products p WHERE p.category_id = 1 FETCH FIRST 1 ROWS ONLY",
+        // findByNameIgnoreCase
+        "SELECT p.id FROM products p WHERE upper(p.name) = upper('x')",
+        "SELECT b.id FROM brands b WHERE upper(b.name) = upper('x')",
+        "SELECT c.id FROM categories c WHERE upper(c.name) = upper('x')",
+        "SELECT d.id FROM deposits d WHERE upper(d.name) = upper('x')",
+        "SELECT p.id FROM providers p WHERE upper(p.name) = upper('x')",
+        // Listado paginado de movimientos (keyset)
+        "SELECT m.id FROM stock_movements m WHERE m.id < 100 ORDER BY m.id DESC FETCH FIRST 51 ROWS ONLY",
+        "SELECT m.id FROM stock_movements m WHERE m.type = 'ENTRY' AND m.id < 100 ORDER BY m.id DESC FETCH FIRST 51 ROWS ONLY",
+        "SELECT m.id FROM stock_movements m WHERE m.origin_deposit_id = 1 AND m.id < 100 ORDER BY m.id DESC FETCH FIRST 51 ROWS ONLY",
+        "SELECT m.id FROM stock_movements m WHERE m.destination_deposit_id = 1 AND m.id < 100 "
+            + "ORDER BY m.id DESC FETCH FIRST 51 ROWS ONLY",
+        // StockSnapshotService: foto más cercana, su fila y la cola de movimientos
+        "SELECT s.id FROM stock_snapshots s WHERE s.completed AND s.taken_at <= now() ORDER BY s.taken_at DESC LIMIT 1",
+        "SELECT r.quantity FROM stock_snapshot_rows r WHERE r.snapshot_id = 1 AND r.product_id = 1 AND r.deposit_id = 1",
+        "SELECT count(*) FROM stock_movements m WHERE m.product_id = 1 AND (m.origin_deposit_id = 1 OR m.destination_deposit_id = 1) "
+            + "AND m.created_at >= now() - interval '1 day' AND m.created_at < now()",
+        // IdempotencyStore: respuesta guardada y purga de vencidas
+        "SELECT k.status_code FROM idempotency_keys k WHERE k.scope = 'sale' AND k.idem_key = 'x' AND k.expires_at > now()",
+        "SELECT k.idem_key FROM idempotency_keys k WHERE k.expires_at <= now()",
+        // ReplenishmentPlanner: salidas de un depósito desde la última corrida y listado por cobertura
+        "SELECT m.product_id, m.date, sum(m.quantity) FROM stock_movements m WHERE m.origin_deposit_id = 1 "
+            + "AND m.type = 'EXIT' AND m.date >= DATE '2025-01-01' GROUP BY m.product_id, m.date",
+        "SELECT s.product_id FROM replenishment_suggestions s WHERE s.suggested_quantity > 0 "
+            + "ORDER BY s.days_of_cover, s.deposit_id, s.product_id LIMIT 100",
+        // Líneas de una venta, y productos y líneas de una página de ventas (@BatchSize)
+        "SELECT i.id, i.product_id, i.quantity FROM sale_items i WHERE i.sale_id = 1",
+        "SELECT i.id, i.product_id, i.quantity FROM sale_items i WHERE i.sale_id = ANY ('{1,2,3}'::bigint[])",
+        "SELECT sp.sale_id, p.id, p.name FROM sale_products sp JOIN products p ON p.id = sp.product_id "
+            + "WHERE sp.sale_id = ANY ('{1,2,3}'::bigint[])",
+        // SalesRollupService: estadísticas por rango de días y agregado de un tramo de ventas
+        "SELECT r.payment_method, sum(r.sales_count), sum(r.total) FROM sales_daily_rollup r "
+            + "WHERE r.day >= DATE '2025-01-01' AND r.day <= DATE '2025-01-31' GROUP BY r.payment_method",
+        "SELECT CAST(s.date AS DATE), s.payment_method, count(*) FROM sales s "
+            + "WHERE s.date >= TIMESTAMP '2025-01-01' AND s.date < TIMESTAMP '2025-02-01' GROUP BY 1, 2",
+        // SalesLeaderboard: ventas del mes al arrancar
+        "SELECT s.date, s.reseller FROM sales s WHERE s.date >= DATE '2025-01-01' AND s.reseller IS NOT NULL",
+        "SELECT s.date, sp.product_id FROM sales s JOIN sale_products sp ON sp.sale_id = s.id WHERE s.date >= DATE '2025-01-01'"
+    })
+    void queryUsesAnIndex(String sql) {
+        String plan = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+        });
+
+        assertThat(plan).as("plan for %s", sql).doesNotContain("Seq Scan");
+    }
+}
@@ -0,0 +1,193 @@
+package uy.edu.ucu.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uy.edu.ucu.inventario.support.TestFixtures.ref;
+import static uy.edu.ucu.inventario.support.TestFixtures.runConcurrently;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import uy.edu.ucu.BackApplication;
+import uy.edu.ucu.inventario.availability.StockAvailabilityIndex;
+import uy.edu.ucu.inventario.entity.Deposit;
+import uy.edu.ucu.inventario.entity.Product;
+import uy.edu.ucu.inventario.entity.Sale;
+import uy.edu.ucu.inventario.entity.SaleItem;
+import uy.edu.ucu.inventario.entity.StockMovement;
+import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.enums.PaymentMethod;
+import uy.edu.ucu.inventario.support.TestFixtures;
+
+/**
+ * Runs thousands of concurrent checkouts against a small catalog. Every sold unit must
+ * show up once in the sale items and be missing once from stock, every sale once in the
+ * daily rollup, and a deposit must never sell more than it holds. The checkouts/sec
+ * reached is logged, not asserted: it depends on the machine.
+ */
+@SpringBootTest(classes = BackApplication.class)
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+class CheckoutLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutLoadTests.class);
+
+    private static final int THREADS = 16;
+    private static final int CHECKOUTS = 4_000;
+    private static final int WARMUP = 400;
+    private static final int PRODUCTS = 200;
+    private static final int DEPOSITS = 4;
+
+    private static final String ROLLUP_MISMATCHES =
+            "SELECT * FROM (SELECT CAST(date AS DATE) AS day, payment_method, COALESCE(reseller, '') AS reseller, " +
+            "count(*) AS sales_count, COALESCE(sum(total), 0) AS total FROM sales WHERE date IS NOT NULL GROUP BY 1, 2, 3) s " +
+            "FULL JOIN (SELECT * FROM sales_daily_rollup WHERE sales_count <> 0) r USING (day, payment_method, reseller) " +
+            "WHERE s.sales_count IS DISTINCT FROM r.sales_count OR s.total IS DISTINCT FROM r.total";
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private StockAvailabilityIndex availabilityIndex;
+
+    private List<Product> products;
+    private List<Deposit> deposits;
+
+    @BeforeEach
+    void setUp() {
+        TestFixtures.Catalog catalog = fixtures.catalog("checkout", PRODUCTS, DEPOSITS, new BigDecimal("10.00"));
+        products = catalog.products();
+        deposits = catalog.deposits();
+    }
+
+    @Test
+    void concurrentCheckoutsKeepStockItemsAndRollupInStep() throws InterruptedException {
+        int initial = 1_000_000;
+        for (Product product : products) {
+            for (Deposit deposit : deposits) {
+                stockMovementService.save(new StockMovement(MovementType.ENTRY, ref(product), null, ref(deposit), initial));
+            }
+        }
+
+        // Unidades vendidas por par (producto, depósito), para comparar con el stock al final
+        AtomicIntegerArray sold = new AtomicIntegerArray(PRODUCTS * DEPOSITS);
+        TestFixtures.Task checkout = i -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int lines = random.nextInt(1, 5);
+            List<int[]> picked = new ArrayList<>(lines);
+            for (int l = 0; l < lines; l++) {
+                picked.add(new int[] {random.nextInt(PRODUCTS), random.nextInt(DEPOSITS), random.nextInt(1, 4)});
+            }
+            saleService.save(sale(picked));
+            for (int[] line : picked) {
+                sold.addAndGet(line[0] * DEPOSITS + line[1], line[2]);
+            }
+        };
+
+        // Calentamiento: JIT, pool de conexiones y bloques de las secuencias
+        runConcurrently(THREADS, WARMUP, checkout);
+
+        long start = System.nanoTime();
+        runConcurrently(THREADS, CHECKOUTS, checkout);
+        double perSecond = CHECKOUTS / ((System.nanoTime() - start) / 1_000_000_000.0);
+        log.info("{} checkouts on {} threads: {} checkouts/s", CHECKOUTS, THREADS, Math.round(perSecond));
+
+        for (int p = 0; p < PRODUCTS; p++) {
+            for (int d = 0; d < DEPOSITS; d++) {
+                Product product = products.get(p);
+                Deposit deposit = deposits.get(d);
+                int units = sold.get(p * DEPOSITS + d);
+                assertThat(itemUnits(product, deposit)).isEqualTo(units);
+                assertThat(quantity(product, deposit)).isEqualTo(initial - units);
+                assertThat(availabilityIndex.quantity(product.getId(), deposit.getId())).isEqualTo(initial - units);
+            }
+        }
+
+        // Todas las ventas concurrentes suman sobre la misma fila del día: el rollup debe coincidir con sales
+        assertThat(jdbcTemplate.queryForList(ROLLUP_MISMATCHES)).isEmpty();
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws InterruptedException {
+        Product product = products.get(0);
+        Deposit deposit = deposits.get(0);
+        int initial = 500;
+        stockMovementService.save(new StockMovement(MovementType.ENTRY, ref(product), null, ref(deposit), initial));
+
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(THREADS, 1_000, i -> {
+            try {
+                saleService.save(sale(List.of(new int[] {0, 0, 1}, new int[] {1 + i % (PRODUCTS - 1), 0, 1})));
+                accepted.incrementAndGet();
+            } catch (ResponseStatusException ex) {
+                assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+                rejected.incrementAndGet();
+            }
+        });
+
+        // Los demás productos no tienen stock en ese depósito: ninguna venta se confirma a medias
+        assertThat(accepted.get()).isZero();
+        assertThat(quantity(product, deposit)).isEqualTo(initial);
+
+        runConcurrently(THREADS, 1_000, i -> {
+            try {
+                saleService.save(sale(List.<int[]>of(new int[] {0, 0, 1})));
+                accepted.incrementAndGet();
+            } catch (ResponseStatusException ex) {
+                assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertThat(accepted.get()).isEqualTo(initial);
+        assertThat(rejected.get()).isEqualTo(2_000 - initial);
+        assertThat(quantity(product, deposit)).isZero();
+        assertThat(availabilityIndex.quantity(product.getId(), deposit.getId())).isZero();
+    }
+
+    // Cada línea es {índice de producto, índice de depósito, cantidad}
+    private Sale sale(List<int[]> lines) {
+        Sale sale = new Sale();
+        sale.setPaymentMethod(PaymentMethod.CASH);
+        for (int[] line : lines) {
+            sale.getItems().add(new SaleItem(ref(products.get(line[0])), ref(deposits.get(line[1])), line[2], null));
+        }
+        return sale;
+    }
+
+    private int itemUnits(Product product, Deposit deposit) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(sum(quantity), 0) FROM sale_items WHERE product_id = ? AND deposit_id = ?",
+                Integer.class, product.getId(), deposit.getId());
+    }
+
+    private int quantity(Product product, Deposit deposit) {
+        return jdbcTemplate.queryForList("SELECT quantity FROM stock WHERE product_id = ? AND deposit_id = ?",
+                Integer.class, product.getId(), deposit.getId()).stream().findFirst().orElse(0);
+    }
+}
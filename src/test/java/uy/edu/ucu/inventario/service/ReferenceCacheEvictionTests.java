@@ -0,0 +1,79 @@
+package uy.edu.ucu.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uy.edu.ucu.inventario.support.TestFixtures.ref;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import uy.edu.ucu.BackApplication;
+import uy.edu.ucu.inventario.entity.Deposit;
+import uy.edu.ucu.inventario.entity.Product;
+import uy.edu.ucu.inventario.entity.StockMovement;
+import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.repository.DepositRepository;
+import uy.edu.ucu.inventario.support.TestFixtures;
+
+/**
+ * Checks that a movement that changes a deposit's product counter evicts only that
+ * deposit from the second-level cache: the other cached deposits keep answering hits.
+ */
+@SpringBootTest(classes = BackApplication.class)
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+class ReferenceCacheEvictionTests {
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private DepositRepository depositRepository;
+
+    @Autowired
+    private CacheStatsService cacheStatsService;
+
+    private Product product;
+    private Deposit updated;
+    private Deposit untouched;
+
+    @BeforeEach
+    void setUp() {
+        TestFixtures.Catalog catalog = fixtures.catalog("cache", 1, 2, null);
+        product = catalog.product(0);
+        updated = catalog.deposit(0);
+        untouched = catalog.deposit(1);
+
+        // Ambos depósitos quedan en la caché
+        depositRepository.findById(updated.getId());
+        depositRepository.findById(untouched.getId());
+    }
+
+    @Test
+    void movementEvictsOnlyTheDepositWhoseCounterChanged() {
+        // Primera fila de stock del producto en el depósito: suma uno a su contador
+        stockMovementService.save(new StockMovement(MovementType.ENTRY, ref(product), null, ref(updated), 5));
+
+        cacheStatsService.reset();
+        depositRepository.findById(untouched.getId());
+        assertThat(deposits()).containsEntry("hits", 1L).containsEntry("misses", 0L);
+
+        Deposit reloaded = depositRepository.findById(updated.getId()).orElseThrow();
+        assertThat(deposits()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+        assertThat(reloaded.getProductCount()).isEqualTo(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> deposits() {
+        Map<String, Object> regions = (Map<String, Object>) cacheStatsService.snapshot().get("regions");
+        return (Map<String, Object>) regions.get("deposits");
+    }
+}
@@ -0,0 +1,169 @@
+package uy.edu.ucu.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import uy.edu.ucu.BackApplication;
+import uy.edu.ucu.inventario.dto.SaleFilter;
+import uy.edu.ucu.inventario.support.TestFixtures;
+
+/**
+ * Exports a year of a million sales and checks that the heap does not grow with the
+ * number of rows written, i.e. that the rows are streamed from a cursor and not
+ * materialized first.
+ */
+@SpringBootTest(classes = BackApplication.class)
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SaleExportStreamingTests {
+
+    private static final int SALES = 1_000_000;
+    private static final int SAMPLE_EVERY = 100_000;
+
+    // Un millón de filas materializadas ocupan cientos de MB; en streaming el heap queda plano
+    private static final long MAX_HEAP_GROWTH = 32L * 1024 * 1024;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SaleExportService exportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String reseller;
+    private long productId;
+
+    @BeforeAll
+    void setUp() {
+        TestFixtures.Catalog catalog = fixtures.catalog("export", 1, 0, new BigDecimal("10.00"));
+        reseller = "export-" + catalog.suffix();
+        productId = catalog.product(0).getId();
+
+        // Directo por SQL: el rollup y el leaderboard no las ven, y se borran al terminar
+        jdbcTemplate.update("INSERT INTO sales (id, date, total, payment_method, reseller) " +
+                "SELECT nextval('sales_seq'), TIMESTAMP '2024-01-01 10:00' + (g % 366) * INTERVAL '1 day', g % 1000 + 0.25, " +
+                "'CASH', ? FROM generate_series(1, ?) g", reseller, SALES);
+        jdbcTemplate.update("INSERT INTO sale_products (sale_id, product_id) " +
+                "SELECT id, ? FROM sales WHERE reseller = ? AND id % 10 = 0", productId, reseller);
+        jdbcTemplate.execute("ANALYZE sales");
+    }
+
+    @AfterAll
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM sale_products WHERE product_id = ?", productId);
+        jdbcTemplate.update("DELETE FROM sales WHERE reseller = ?", reseller);
+    }
+
+    @Test
+    void exportsAMillionSalesInConstantMemory() throws IOException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = heapAfterGc(memory);
+
+        LineCounter output = new LineCounter(memory);
+        long written = exportService.export(filter(), SaleExportService.Format.CSV, output);
+
+        assertThat(written).isEqualTo(SALES);
+        assertThat(output.lines).isEqualTo(SALES + 1);
+        assertThat(output.maxHeap - baseline).isLessThan(MAX_HEAP_GROWTH);
+    }
+
+    @Test
+    void writesGzippedNdjson() throws IOException {
+        SaleFilter january = new SaleFilter(LocalDate.of(2024, 1, 1).atStartOfDay(),
+                LocalDate.of(2024, 2, 1).atStartOfDay(), null, reseller);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+        long written = exportService.export(january, SaleExportService.Format.NDJSON, gzip);
+        gzip.finish();
+
+        String text = new String(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        List<String> lines = text.lines().toList();
+        assertThat(lines).hasSize((int) written);
+        assertThat(written).isEqualTo(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM sales WHERE reseller = ? AND date < DATE '2024-02-01'", Long.class, reseller));
+
+        long previousId = 0;
+        int withProducts = 0;
+        for (String line : lines) {
+            JsonNode sale = objectMapper.readTree(line);
+            assertThat(sale.get("id").asLong()).isGreaterThan(previousId);
+            assertThat(sale.get("date").asText()).startsWith("2024-01-");
+            assertThat(sale.get("reseller").asText()).isEqualTo(reseller);
+            if (sale.get("productIds").size() > 0) {
+                assertThat(sale.get("productIds").get(0).asLong()).isEqualTo(productId);
+                withProducts++;
+            }
+            previousId = sale.get("id").asLong();
+        }
+        assertThat(withProducts).isPositive();
+    }
+
+    private SaleFilter filter() {
+        return new SaleFilter(LocalDate.of(2024, 1, 1).atStartOfDay(), LocalDate.of(2025, 1, 1).atStartOfDay(),
+                null, reseller);
+    }
+
+    private static long heapAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /** Discards the export, counting lines and sampling the heap every SAMPLE_EVERY lines. */
+    private static final class LineCounter extends OutputStream {
+
+        private final MemoryMXBean memory;
+        private long lines;
+        private long maxHeap;
+
+        LineCounter(MemoryMXBean memory) {
+            this.memory = memory;
+        }
+
+        @Override
+        public void write(int b) {
+            if (b == '\n' && ++lines % SAMPLE_EVERY == 0) {
+                maxHeap = Math.max(maxHeap, heapAfterGc(memory));
+            }
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                write(buffer[i]);
+            }
+        }
+    }
+}
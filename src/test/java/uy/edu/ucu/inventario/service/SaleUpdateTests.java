@@ -0,0 +1,97 @@
+package uy.edu.ucu.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uy.edu.ucu.inventario.support.TestFixtures.ref;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import uy.edu.ucu.BackApplication;
+import uy.edu.ucu.inventario.entity.Product;
+import uy.edu.ucu.inventario.entity.Sale;
+import uy.edu.ucu.inventario.entity.SaleItem;
+import uy.edu.ucu.inventario.entity.StockMovement;
+import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.enums.PaymentMethod;
+import uy.edu.ucu.inventario.support.TestFixtures;
+
+/**
+ * Checks that updating a sale with items keeps its products in step with the items:
+ * the editable fields change, the products cannot.
+ */
+@SpringBootTest(classes = BackApplication.class)
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+class SaleUpdateTests {
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    private TestFixtures.Catalog catalog;
+    private Long saleId;
+
+    @BeforeEach
+    void setUp() {
+        catalog = fixtures.catalog("update", 2, 1, new BigDecimal("10.00"));
+        stockMovementService.save(new StockMovement(MovementType.ENTRY, ref(catalog.product(0)), null,
+                ref(catalog.deposit(0)), 5));
+
+        Sale sale = new Sale();
+        sale.setPaymentMethod(PaymentMethod.CASH);
+        sale.getItems().add(new SaleItem(ref(catalog.product(0)), ref(catalog.deposit(0)), 2, null));
+        saleId = saleService.save(sale).getId();
+    }
+
+    @Test
+    void rejectsProductChangesOnASaleWithItems() {
+        Sale update = update(PaymentMethod.CASH, catalog.product(1));
+
+        assertThatThrownBy(() -> saleService.save(update))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(soldProductIds()).containsExactly(catalog.product(0).getId());
+    }
+
+    @Test
+    void updatesEditableFieldsWhenTheProductsAreKept() {
+        saleService.save(update(PaymentMethod.CARD, catalog.product(0)));
+
+        Sale reloaded = saleService.getById(saleId).orElseThrow();
+        assertThat(reloaded.getPaymentMethod()).isEqualTo(PaymentMethod.CARD);
+        assertThat(soldProductIds()).containsExactly(catalog.product(0).getId());
+    }
+
+    // Como llega un PUT: sin líneas, con los productos por id
+    private Sale update(PaymentMethod paymentMethod, Product product) {
+        Sale update = new Sale();
+        update.setId(saleId);
+        update.setTotal(new BigDecimal("20.00"));
+        update.setPaymentMethod(paymentMethod);
+        update.setProducts(List.of(ref(product)));
+        return update;
+    }
+
+    private List<Long> soldProductIds() {
+        return jdbcTemplate.queryForList("SELECT product_id FROM sale_products WHERE sale_id = ?", Long.class, saleId);
+    }
+}
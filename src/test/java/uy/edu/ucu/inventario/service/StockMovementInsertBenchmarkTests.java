@@ -0,0 +1,104 @@
+package uy.edu.ucu.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import uy.edu.ucu.BackApplication;
+import uy.edu.ucu.inventario.entity.AuditLog;
+import uy.edu.ucu.inventario.entity.Deposit;
+import uy.edu.ucu.inventario.entity.Product;
+import uy.edu.ucu.inventario.entity.StockMovement;
+import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.support.TestFixtures;
+
+/**
+ * Measures inserts/sec for stock movements plus their audit rows, with JDBC batching
+ * disabled (batch size 1, what IDENTITY ids forced) and with the configured batch size,
+ * and checks that batching is faster.
+ */
+@SpringBootTest(classes = BackApplication.class)
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+class StockMovementInsertBenchmarkTests {
+
+    private static final int MOVEMENTS = 5_000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Product product;
+    private Deposit deposit;
+
+    @BeforeEach
+    void setUp() {
+        TestFixtures.Catalog catalog = fixtures.catalog("bench", 1, 1, null);
+        product = catalog.product(0);
+        deposit = catalog.deposit(0);
+    }
+
+    @Test
+    void batchedInsertsOutperformRowByRowInserts() {
+        // Calentamiento: JIT, pool de conexiones y bloques de la secuencia
+        insertMovements(500, 1);
+        insertMovements(500, null);
+
+        double rowByRow = insertMovements(MOVEMENTS, 1);
+        double batched = insertMovements(MOVEMENTS, null);
+
+        assertThat(batched).isGreaterThan(rowByRow);
+    }
+
+    /**
+     * Inserts the movements and one audit row each in a single transaction.
+     * A null batch size keeps the configured hibernate.jdbc.batch_size.
+     *
+     * @return movements (with their audit row) inserted per second
+     */
+    private double insertMovements(int count, Integer batchSize) {
+        long start = System.nanoTime();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            if (batchSize != null) {
+                session.setJdbcBatchSize(batchSize);
+            }
+
+            Product productRef = entityManager.getReference(Product.class, product.getId());
+            Deposit depositRef = entityManager.getReference(Deposit.class, deposit.getId());
+
+            for (int i = 0; i < count; i++) {
+                StockMovement movement = new StockMovement(MovementType.ENTRY, productRef, null, depositRef, 1);
+                entityManager.persist(movement);
+                entityManager.persist(new AuditLog("CREATE", "StockMovement", movement.getId(),
+                        LocalDateTime.now(), null, null));
+
+                if (i % 1_000 == 999) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    productRef = entityManager.getReference(Product.class, product.getId());
+                    depositRef = entityManager.getReference(Deposit.class, deposit.getId());
+                }
+            }
+        });
+
+        return count / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,95 @@
+package uy.edu.ucu.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uy.edu.ucu.inventario.support.TestFixtures.ref;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import uy.edu.ucu.BackApplication;
+import uy.edu.ucu.inventario.dto.StockMovementView;
+import uy.edu.ucu.inventario.entity.Deposit;
+import uy.edu.ucu.inventario.entity.Product;
+import uy.edu.ucu.inventario.entity.StockMovement;
+import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.pagination.CursorPage;
+import uy.edu.ucu.inventario.support.TestFixtures;
+
+/**
+ * Pages through a deposit's movements while some of them are edited, and checks that
+ * every movement is returned exactly once: an edit resets the movement's date, but the
+ * listing pages on the id.
+ */
+@SpringBootTest(classes = BackApplication.class)
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+class StockMovementPagingTests {
+
+    private static final int MOVEMENTS = 6;
+    private static final int PAGE_SIZE = 2;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    private Product product;
+    private Deposit deposit;
+
+    // Del más nuevo al más viejo, el orden del listado
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        TestFixtures.Catalog catalog = fixtures.catalog("paging", 1, 1, null);
+        product = catalog.product(0);
+        deposit = catalog.deposit(0);
+
+        // Uno por día hacia atrás: el más nuevo es de hoy
+        for (int i = 0; i < MOVEMENTS; i++) {
+            Long id = stockMovementService.save(
+                    new StockMovement(MovementType.ENTRY, ref(product), null, ref(deposit), 1)).getId();
+            jdbcTemplate.update("UPDATE stock_movements SET date = CURRENT_DATE - ? WHERE id = ?", MOVEMENTS - 1 - i, id);
+            ids.add(0, id);
+        }
+    }
+
+    @Test
+    void editsWhilePagingNeitherSkipNorRepeatMovements() {
+        CursorPage<StockMovementView> page = stockMovementService.findByDestinationDeposit(deposit.getId(), null, PAGE_SIZE);
+        List<Long> seen = new ArrayList<>(idsOf(page));
+
+        // Uno ya leído y uno que todavía no: los dos pasan a tener fecha de hoy
+        edit(ids.get(1));
+        edit(ids.get(MOVEMENTS - 2));
+
+        while (page.hasMore()) {
+            page = stockMovementService.findByDestinationDeposit(deposit.getId(), page.nextCursor(), PAGE_SIZE);
+            seen.addAll(idsOf(page));
+        }
+
+        assertThat(seen).containsExactlyElementsOf(ids);
+    }
+
+    private void edit(Long id) {
+        StockMovement movement = new StockMovement(MovementType.ENTRY, ref(product), null, ref(deposit), 2);
+        movement.setId(id);
+        stockMovementService.save(movement);
+    }
+
+    private static List<Long> idsOf(CursorPage<StockMovementView> page) {
+        return page.items().stream().map(StockMovementView::id).toList();
+    }
+}
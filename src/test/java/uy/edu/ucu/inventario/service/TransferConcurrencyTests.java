@@ -0,0 +1,147 @@
+package uy.edu.ucu.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uy.edu.ucu.inventario.support.TestFixtures.ref;
+import static uy.edu.ucu.inventario.support.TestFixtures.runConcurrently;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import uy.edu.ucu.BackApplication;
+import uy.edu.ucu.inventario.availability.StockAvailabilityIndex;
+import uy.edu.ucu.inventario.entity.Deposit;
+import uy.edu.ucu.inventario.entity.Product;
+import uy.edu.ucu.inventario.entity.StockMovement;
+import uy.edu.ucu.inventario.enums.MovementType;
+import uy.edu.ucu.inventario.support.TestFixtures;
+
+/**
+ * Fires thousands of transfers in opposite directions between two deposits and checks
+ * that no unit is created or lost, that rejected transfers are plain 409s (never a
+ * deadlock) and that the deposit counters match the rows left.
+ */
+@SpringBootTest(classes = BackApplication.class)
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "TEST_DATASOURCE_URL", matches = ".+")
+class TransferConcurrencyTests {
+
+    private static final int THREADS = 16;
+    private static final int TRANSFERS = 4_000;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private StockAvailabilityIndex availabilityIndex;
+
+    private Product product;
+    private Deposit first;
+    private Deposit second;
+
+    @BeforeEach
+    void setUp() {
+        TestFixtures.Catalog catalog = fixtures.catalog("transfer", 1, 2, null);
+        product = catalog.product(0);
+        first = catalog.deposit(0);
+        second = catalog.deposit(1);
+    }
+
+    @Test
+    void opposingTransfersConserveQuantity() throws InterruptedException {
+        // Poco stock: los depósitos se vacían y se vuelven a crear a menudo
+        int initial = 20;
+        stockMovementService.save(new StockMovement(MovementType.ENTRY, ref(product), null, ref(first), initial));
+        stockMovementService.save(new StockMovement(MovementType.ENTRY, ref(product), null, ref(second), initial));
+
+        AtomicInteger movedToSecond = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(THREADS, TRANSFERS, i -> {
+            boolean forward = i % 2 == 0;
+            int quantity = ThreadLocalRandom.current().nextInt(1, 6);
+            Deposit origin = forward ? first : second;
+            Deposit destination = forward ? second : first;
+            try {
+                stockMovementService.save(new StockMovement(MovementType.TRANSFER, ref(product),
+                        ref(origin), ref(destination), quantity));
+                movedToSecond.addAndGet(forward ? quantity : -quantity);
+            } catch (ResponseStatusException ex) {
+                assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+                rejected.incrementAndGet();
+            }
+        });
+
+        // Algunas se rechazan por falta de stock, pero la mayoría tiene que aplicarse
+        assertThat(rejected.get()).isLessThan(TRANSFERS / 2);
+        assertThat(quantity(first)).isEqualTo(initial - movedToSecond.get());
+        assertThat(quantity(second)).isEqualTo(initial + movedToSecond.get());
+        assertThat(availabilityIndex.quantity(product.getId(), first.getId())).isEqualTo(quantity(first));
+        assertThat(availabilityIndex.quantity(product.getId(), second.getId())).isEqualTo(quantity(second));
+        assertCountersMatchRows();
+    }
+
+    @Test
+    void ledgerTransfersDoNotDeadlockWithoutApplicationLocks() throws InterruptedException {
+        // Sin los locks por par de la aplicación: sólo el orden de bloqueo de filas evita el interbloqueo
+        int initial = 10_000;
+        stockMovementService.save(new StockMovement(MovementType.ENTRY, ref(product), null, ref(first), initial));
+        stockMovementService.save(new StockMovement(MovementType.ENTRY, ref(product), null, ref(second), initial));
+
+        AtomicInteger movedToSecond = new AtomicInteger();
+
+        runConcurrently(THREADS, TRANSFERS, i -> {
+            boolean forward = i % 2 == 0;
+            int quantity = ThreadLocalRandom.current().nextInt(1, 4);
+            transactionTemplate.executeWithoutResult(status -> stockLedger.transfer(ref(product),
+                    ref(forward ? first : second), ref(forward ? second : first), quantity));
+            movedToSecond.addAndGet(forward ? quantity : -quantity);
+        });
+
+        assertThat(quantity(first) + quantity(second)).isEqualTo(2 * initial);
+        assertThat(quantity(second)).isEqualTo(initial + movedToSecond.get());
+        assertCountersMatchRows();
+    }
+
+    private int quantity(Deposit deposit) {
+        return jdbcTemplate.queryForList("SELECT quantity FROM stock WHERE product_id = ? AND deposit_id = ?",
+                Integer.class, product.getId(), deposit.getId()).stream().findFirst().orElse(0);
+    }
+
+    private void assertCountersMatchRows() {
+        Integer rows = jdbcTemplate.queryForObject("SELECT count(*) FROM stock WHERE product_id = ?",
+                Integer.class, product.getId());
+        Integer depositsCount = jdbcTemplate.queryForObject("SELECT deposits_count FROM products WHERE id = ?",
+                Integer.class, product.getId());
+        assertThat(depositsCount).isEqualTo(rows);
+
+        for (Deposit deposit : List.of(first, second)) {
+            Integer productCount = jdbcTemplate.queryForObject("SELECT product_count FROM deposits WHERE id = ?",
+                    Integer.class, deposit.getId());
+            assertThat(productCount).isEqualTo(quantity(deposit) > 0 ? 1 : 0);
+        }
+    }
+}
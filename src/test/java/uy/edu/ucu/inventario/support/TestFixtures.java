@@ -0,0 +1,128 @@
+package uy.edu.ucu.inventario.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import uy.edu.ucu.inventario.entity.Brand;
+import uy.edu.ucu.inventario.entity.Category;
+import uy.edu.ucu.inventario.entity.Deposit;
+import uy.edu.ucu.inventario.entity.Product;
+
+/**
+ * Reference data and helpers shared by the integration tests. Picked up by the
+ * application's component scan, so tests can autowire it.
+ */
+@Component
+public class TestFixtures {
+
+    /**
+     * A brand, a category and the products and deposits created with them. All names
+     * carry the same random suffix, so tests do not see each other's rows.
+     */
+    public record Catalog(String suffix, Brand brand, Category category, List<Product> products, List<Deposit> deposits) {
+
+        public Product product(int index) {
+            return products.get(index);
+        }
+
+        public Deposit deposit(int index) {
+            return deposits.get(index);
+        }
+    }
+
+    /** Work run by {@link #runConcurrently}; receives the index of the run. */
+    public interface Task {
+        void run(int index) throws Exception;
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public TestFixtures(TransactionTemplate transactionTemplate) {
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Persists a catalog in one transaction. A null sale price leaves the products without one.
+     */
+    public Catalog catalog(String prefix, int products, int deposits, BigDecimal salePrice) {
+        String suffix = UUID.randomUUID().toString();
+        return transactionTemplate.execute(status -> {
+            Brand brand = new Brand();
+            brand.setName(prefix + "-brand-" + suffix);
+            entityManager.persist(brand);
+
+            Category category = new Category(prefix + "-category-" + suffix);
+            entityManager.persist(category);
+
+            List<Deposit> createdDeposits = new ArrayList<>(deposits);
+            for (int d = 0; d < deposits; d++) {
+                Deposit deposit = new Deposit();
+                deposit.setName(prefix + "-deposit-" + d + "-" + suffix);
+                entityManager.persist(deposit);
+                createdDeposits.add(deposit);
+            }
+
+            List<Product> createdProducts = new ArrayList<>(products);
+            for (int p = 0; p < products; p++) {
+                Product.MonetaryValue price = salePrice == null ? null : new Product.MonetaryValue("UYU", salePrice);
+                Product product = new Product(prefix + "-product-" + p + "-" + suffix, null, null, price, brand, category);
+                entityManager.persist(product);
+                createdProducts.add(product);
+            }
+
+            return new Catalog(suffix, brand, category, createdProducts, createdDeposits);
+        });
+    }
+
+    // Referencias con sólo el id, como llegan en el cuerpo de un request
+    public static Product ref(Product product) {
+        Product ref = new Product();
+        ref.setId(product.getId());
+        return ref;
+    }
+
+    public static Deposit ref(Deposit deposit) {
+        Deposit ref = new Deposit();
+        ref.setId(deposit.getId());
+        return ref;
+    }
+
+    /**
+     * Runs the task the given number of times across the given threads, waits for all of
+     * them and fails with the first exception thrown by a run.
+     */
+    public static void runConcurrently(int threads, int times, Task task) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < times; i++) {
+            int index = i;
+            executor.execute(() -> {
+                try {
+                    task.run(index);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+        }
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(5, TimeUnit.MINUTES)).as("concurrent runs finished").isTrue();
+        assertThat(failure.get()).as("unexpected failure").isNull();
+    }
+}